@@ -0,0 +1,116 @@
+package com.reazip.economycraft;
+
+import com.mojang.logging.LogUtils;
+import com.reazip.economycraft.admin.AdminSettingsUi;
+import com.reazip.economycraft.util.EconomyPaths;
+import net.minecraft.server.MinecraftServer;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public final class ConfigWatcher {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final String CONFIG = "config.json";
+    private static final String PRICES = "prices.json";
+    private static final long SETTLE_MS = 250L;
+
+    private final MinecraftServer server;
+    private final WatchService service;
+
+    private ConfigWatcher(MinecraftServer server, WatchService service) {
+        this.server = server;
+        this.service = service;
+    }
+
+    @Nullable
+    public static ConfigWatcher start(MinecraftServer server) {
+        Path dir = EconomyPaths.configDir(server);
+        try {
+            WatchService service = dir.getFileSystem().newWatchService();
+            dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            ConfigWatcher watcher = new ConfigWatcher(server, service);
+            Thread thread = new Thread(watcher::run, "EconomyCraft-Watch");
+            thread.setDaemon(true);
+            thread.start();
+            return watcher;
+        } catch (IOException | UnsupportedOperationException ex) {
+            LOGGER.error("[EconomyCraft] Failed to watch {} for changes", dir, ex);
+            return null;
+        }
+    }
+
+    public void stop() {
+        try {
+            service.close();
+        } catch (IOException ex) {
+            LOGGER.error("[EconomyCraft] Failed to stop watching config files", ex);
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<String> changed = new HashSet<>();
+                collect(service.take(), changed);
+                WatchKey key;
+                while ((key = service.poll(SETTLE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                if (changed.contains(CONFIG)) reloadConfig();
+                if (changed.contains(PRICES)) reloadPrices();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        } catch (Exception ex) {
+            LOGGER.error("[EconomyCraft] Config file watcher stopped", ex);
+        }
+    }
+
+    private static void collect(WatchKey key, Set<String> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.add(CONFIG);
+                changed.add(PRICES);
+            } else if (event.context() instanceof Path path) {
+                changed.add(path.getFileName().toString());
+            }
+        }
+        key.reset();
+    }
+
+    private void reloadConfig() {
+        long start = System.nanoTime();
+        EconomyConfig parsed = EconomyConfig.readFromDisk();
+        if (parsed == null) return;
+        server.execute(() -> {
+            List<String> changed = EconomyConfig.applyChanges(parsed);
+            if (changed.isEmpty()) return;
+            AdminSettingsUi.applyRuntimeSettings(server);
+            LOGGER.info("[EconomyCraft] Applied config.json changes to {} in {} ms.",
+                    String.join(", ", changed), elapsedMs(start));
+        });
+    }
+
+    private void reloadPrices() {
+        long start = System.nanoTime();
+        server.execute(() -> EconomyCraft.getManager(server).getPrices().reload().thenAccept(result -> {
+            if (result.isEmpty()) return;
+            LOGGER.info("[EconomyCraft] Applied prices.json changes ({} added, {} changed, {} removed) in {} ms.",
+                    result.added(), result.changed(), result.removed(), elapsedMs(start));
+        }));
+    }
+
+    private static long elapsedMs(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -2,11 +2,14 @@ package com.reazip.economycraft;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.mojang.logging.LogUtils;
-import com.reazip.economycraft.util.AsyncFileWriter;
+import com.reazip.economycraft.util.AtomicFiles;
 import com.reazip.economycraft.util.DeliveryLedger;
 import com.reazip.economycraft.util.EconomyPaths;
+import com.reazip.economycraft.util.PersistenceScheduler;
+import net.minecraft.core.HolderLookup;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.world.item.ItemStack;
 import org.slf4j.Logger;
@@ -15,9 +18,10 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
-public final class DeliveryManager {
+public final class DeliveryManager implements PersistenceScheduler.Persistable {
     private static final Logger LOGGER = LogUtils.getLogger();
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 
@@ -37,6 +41,16 @@ public final class DeliveryManager {
         save();
     }
 
+    public void addDeliveries(Map<UUID, List<ItemStack>> batch) {
+        if (batch.isEmpty()) return;
+        batch.forEach((player, stacks) -> {
+            for (ItemStack stack : stacks) {
+                ledger.add(player, stack);
+            }
+        });
+        save();
+    }
+
     public List<ItemStack> getDeliveries(UUID player) {
         return ledger.get(player);
     }
@@ -50,11 +64,10 @@ public final class DeliveryManager {
     }
 
     private void load(Path dataDir) {
-        if (Files.exists(file)) {
+        if (AtomicFiles.exists(file)) {
             try {
-                String json = Files.readString(file, StandardCharsets.UTF_8);
-                JsonObject root = GSON.fromJson(json, JsonObject.class);
-                if (root != null) ledger.load(root, server.registryAccess());
+                JsonElement root = AtomicFiles.readJson(file);
+                if (root != null) ledger.load(root.getAsJsonObject(), server.registryAccess());
             } catch (Exception ex) {
                 LOGGER.error("[EconomyCraft] Failed to load {}", file, ex);
             }
@@ -86,6 +99,18 @@ public final class DeliveryManager {
     }
 
     public void save() {
-        AsyncFileWriter.writeAsync(file, GSON.toJson(ledger.save(server.registryAccess())));
+        PersistenceScheduler.markDirty(this);
+    }
+
+    @Override
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public PersistenceScheduler.Encoder snapshot() {
+        Map<UUID, List<ItemStack>> copies = ledger.snapshot();
+        HolderLookup.Provider provider = server.registryAccess();
+        return () -> GSON.toJson(DeliveryLedger.encode(copies, provider));
     }
 }
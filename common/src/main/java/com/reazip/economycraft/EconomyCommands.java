@@ -10,11 +10,11 @@ import com.mojang.brigadier.suggestion.Suggestions;
 import com.mojang.brigadier.suggestion.SuggestionsBuilder;
 import com.mojang.logging.LogUtils;
 import com.reazip.economycraft.admin.AdminUi;
-import com.reazip.economycraft.util.AsyncFileWriter;
 import com.reazip.economycraft.util.EconomyPaths;
 import com.reazip.economycraft.util.IdentityCompat;
 import com.reazip.economycraft.util.ItemArgumentCompat;
 import com.reazip.economycraft.util.PermissionCompat;
+import com.reazip.economycraft.util.PersistenceScheduler;
 import net.minecraft.ChatFormatting;
 import net.minecraft.commands.CommandBuildContext;
 import net.minecraft.commands.Commands;
@@ -34,7 +34,7 @@ import com.reazip.economycraft.shop.ShopManager;
 import com.reazip.economycraft.shop.ShopListing;
 import com.reazip.economycraft.shop.ShopUi;
 import com.reazip.economycraft.shop.ServerShopUi;
-import com.reazip.economycraft.orders.OrderManager;
+import com.reazip.economycraft.orders.OrderFulfillment;
 import com.reazip.economycraft.orders.OrderRequest;
 import com.reazip.economycraft.orders.OrdersUi;
 import net.minecraft.world.item.ItemStack;
@@ -42,12 +42,12 @@ import net.minecraft.world.item.ItemStack;
 import static net.minecraft.commands.Commands.argument;
 import static net.minecraft.commands.Commands.literal;
 
-import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public final class EconomyCommands {
     private static final Logger LOGGER = LogUtils.getLogger();
     private static final int MAIN_INVENTORY_SLOTS = 36;
+    private static final int BAL_TOP_PAGE_SIZE = 10;
     public static void register(CommandDispatcher<CommandSourceStack> dispatcher, CommandBuildContext buildContext,
                                 Commands.CommandSelection selection) {
         dispatcher.register(buildRoot(
@@ -160,7 +160,7 @@ public final class EconomyCommands {
             return 0;
         }
 
-        AsyncFileWriter.flush();
+        PersistenceScheduler.flush();
 
         if (!EconomyPaths.importSharedFolder(server)) {
             source.sendFailure(Component.literal("Import failed. config/economycraft was left in place, so you can try again. Check the log for the reason.")
@@ -218,7 +218,20 @@ public final class EconomyCommands {
     private static LiteralArgumentBuilder<CommandSourceStack> buildBalance() {
         return literal("bal")
                 .then(literal("top")
-                        .executes(ctx -> balTop(ctx.getSource())))
+                        .executes(ctx -> balTop(ctx.getSource(), 1))
+                        .then(argument("page", IntegerArgumentType.integer(1))
+                                .executes(ctx -> balTop(ctx.getSource(), IntegerArgumentType.getInteger(ctx, "page")))))
+                .then(literal("rank")
+                        .executes(ctx -> showRank(IdentityCompat.of(ctx.getSource().getPlayerOrException()), ctx.getSource()))
+                        .then(argument("target", GameProfileArgument.gameProfile())
+                                .executes(ctx -> {
+                                    var refs = IdentityCompat.getArgAsPlayerRefs(ctx, "target");
+                                    if (refs.size() != 1) {
+                                        ctx.getSource().sendFailure(Component.literal("Please specify exactly one player").withStyle(ChatFormatting.RED));
+                                        return 0;
+                                    }
+                                    return showRank(refs.iterator().next(), ctx.getSource());
+                                })))
                 .executes(ctx -> showBalance(IdentityCompat.of(ctx.getSource().getPlayerOrException()), ctx.getSource()))
                 .then(argument("target", GameProfileArgument.gameProfile())
                         .executes(ctx -> {
@@ -251,11 +264,11 @@ public final class EconomyCommands {
 
     private static int showBalance(IdentityCompat.PlayerRef target, CommandSourceStack source) {
         EconomyManager manager = EconomyCraft.getManager(source.getServer());
-        Long bal = manager.getBalance(target.id(), false);
-        if (bal == null) {
+        if (!manager.hasAccount(target.id())) {
             source.sendFailure(Component.literal("Unknown player").withStyle(ChatFormatting.RED));
             return 0;
         }
+        long bal = manager.getBalance(target.id());
 
         ServerPlayer executor = tryGetPlayer(source);
 
@@ -273,28 +286,58 @@ public final class EconomyCommands {
         return 1;
     }
 
-    private static int balTop(CommandSourceStack source) {
+    private static int showRank(IdentityCompat.PlayerRef target, CommandSourceStack source) {
         EconomyManager manager = EconomyCraft.getManager(source.getServer());
-        Map<UUID, Long> balances = manager.getBalances();
+        int rank = manager.getRank(target.id());
+        if (rank <= 0) {
+            source.sendFailure(Component.literal("Unknown player").withStyle(ChatFormatting.RED));
+            return 0;
+        }
+        long bal = manager.getBalance(target.id());
+        int total = manager.getLeaderboardSize();
+
+        ServerPlayer executor = tryGetPlayer(source);
+
+        Component msg;
+        if (executor != null && executor.getUUID().equals(target.id())) {
+            msg = Component.literal("Rank: #" + rank + " of " + total + " with " + EconomyCraft.formatMoney(bal))
+                    .withStyle(ChatFormatting.YELLOW);
+        } else {
+            msg = Component.literal(target.name() + " is #" + rank + " of " + total + " with " + EconomyCraft.formatMoney(bal))
+                    .withStyle(ChatFormatting.YELLOW);
+        }
+
+        reply(source, executor, msg, false);
+
+        return rank;
+    }
 
-        if (balances.isEmpty()) {
+    private static int balTop(CommandSourceStack source, int page) {
+        EconomyManager manager = EconomyCraft.getManager(source.getServer());
+        int total = manager.getLeaderboardSize();
+        if (total == 0) {
             source.sendFailure(Component.literal("No balances found").withStyle(ChatFormatting.RED));
             return 0;
         }
 
-        var sorted = getSortedEntries(balances, manager);
-        if (sorted.size() > 10) sorted = new ArrayList<>(sorted.subList(0, 10));
+        int pages = (total + BAL_TOP_PAGE_SIZE - 1) / BAL_TOP_PAGE_SIZE;
+        if (page > pages) {
+            source.sendFailure(Component.literal("There are only " + pages + " pages").withStyle(ChatFormatting.RED));
+            return 0;
+        }
+
+        int offset = (page - 1) * BAL_TOP_PAGE_SIZE;
+        var sorted = manager.getLeaderboard(offset, BAL_TOP_PAGE_SIZE);
 
-        StringBuilder sb = new StringBuilder("Top balances:\n");
+        StringBuilder sb = new StringBuilder(pages > 1 ? "Top balances (page " + page + "/" + pages + "):\n" : "Top balances:\n");
         for (int i = 0; i < sorted.size(); i++) {
             var e = sorted.get(i);
-            UUID id = e.getKey();
-            long balance = e.getValue();
+            long balance = e.balance();
 
-            String name = manager.getBestName(id);
-            if (name == null || name.isBlank()) name = id.toString();
+            String name = e.name();
+            if (name == null || name.isBlank()) name = e.id().toString();
 
-            sb.append(i + 1)
+            sb.append(offset + i + 1)
                     .append(". ")
                     .append(name)
                     .append(": ")
@@ -311,51 +354,23 @@ public final class EconomyCommands {
         return sorted.size();
     }
 
-    private static @NotNull ArrayList<Map.Entry<UUID, Long>> getSortedEntries(Map<UUID, Long> balances, EconomyManager manager) {
-        var sorted = new ArrayList<>(balances.entrySet());
-        sorted.sort((a, b) -> {
-            int c = Long.compare(b.getValue(), a.getValue());
-            if (c != 0) return c;
-
-            String an = manager.getBestName(a.getKey());
-            String bn = manager.getBestName(b.getKey());
-            if (an == null || an.isBlank()) an = a.getKey().toString();
-            if (bn == null || bn.isBlank()) bn = b.getKey().toString();
-
-            c = String.CASE_INSENSITIVE_ORDER.compare(an, bn);
-            if (c != 0) return c;
-
-            return a.getKey().compareTo(b.getKey());
-        });
-        return sorted;
-    }
-
     private static int pay(ServerPlayer from, String target, long amount, CommandSourceStack source) {
         var server = source.getServer();
         EconomyManager manager = EconomyCraft.getManager(server);
 
-        ServerPlayer toOnline = server.getPlayerList().getPlayerByName(target);
-        UUID toId = (toOnline != null) ? toOnline.getUUID() : null;
-
-        if (toId == null) {
-            try { toId = UUID.fromString(target); } catch (IllegalArgumentException ignored) {}
-        }
-
-        if (toId == null) {
-            toId = manager.tryResolveUuidByName(target);
-        }
-
+        UUID toId = manager.tryResolveUuidByName(target);
         if (toId == null) {
             source.sendFailure(Component.literal("Unknown player").withStyle(ChatFormatting.RED));
             return 0;
         }
+        ServerPlayer toOnline = server.getPlayerList().getPlayer(toId);
 
         if (from.getUUID().equals(toId)) {
             source.sendFailure(Component.literal("You cannot pay yourself").withStyle(ChatFormatting.RED));
             return 0;
         }
 
-        if (!manager.getBalances().containsKey(toId)) {
+        if (!manager.hasAccount(toId)) {
             source.sendFailure(Component.literal("Unknown player").withStyle(ChatFormatting.RED));
             return 0;
         }
@@ -516,7 +531,7 @@ public final class EconomyCommands {
             UUID id = p.id();
 
             if (amount == null) {
-                if (!manager.getBalances().containsKey(id)) {
+                if (!manager.hasAccount(id)) {
                     source.sendFailure(Component.literal(
                                     "Failed to remove all money from " + p.name() + "'s balance. Unknown player.")
                             .withStyle(ChatFormatting.RED));
@@ -547,7 +562,7 @@ public final class EconomyCommands {
         for (var p : profiles) {
             UUID id = p.id();
             if (amount == null) {
-                if (!manager.getBalances().containsKey(id)) {
+                if (!manager.hasAccount(id)) {
                     source.sendFailure(Component.literal(
                                     "Failed to remove all money from " + p.name() + "'s balance. Unknown player.")
                             .withStyle(ChatFormatting.RED));
@@ -827,7 +842,7 @@ public final class EconomyCommands {
             source.sendFailure(Component.literal("Invalid item").withStyle(ChatFormatting.RED));
             return 0;
         }
-        OrderManager orders = EconomyCraft.getManager(source.getServer()).getOrders();
+        EconomyManager eco = EconomyCraft.getManager(source.getServer());
         OrderRequest r = new OrderRequest();
         r.requester = player.getUUID();
         r.price = price;
@@ -838,7 +853,10 @@ public final class EconomyCommands {
             return 0;
         }
         r.amount = amount;
-        orders.addRequest(r);
+        if (!OrderFulfillment.post(eco, r)) {
+            source.sendFailure(Component.literal("Not enough balance").withStyle(ChatFormatting.RED));
+            return 0;
+        }
         long tax = Math.round(price * EconomyConfig.get().taxRate);
 
         Component msg = Component.literal("Created request" +
@@ -921,12 +939,12 @@ public final class EconomyCommands {
             suggestions.add(IdentityCompat.of(p).name());
         }
 
-        for (UUID id : manager.getBalances().keySet()) {
+        manager.forEachBalance((id, balance) -> {
             String name = manager.getBestName(id);
             if (name != null && !name.isBlank()) {
                 suggestions.add(name);
             }
-        }
+        });
 
         suggestions.forEach(builder::suggest);
         return builder.buildFuture();
@@ -3,19 +3,29 @@ package com.reazip.economycraft;
 import com.google.gson.*;
 import com.google.gson.annotations.SerializedName;
 import com.mojang.logging.LogUtils;
+import com.reazip.economycraft.balance.BalanceStore;
+import com.reazip.economycraft.util.BundledDefaults;
 import com.reazip.economycraft.util.EconomyPaths;
 import net.minecraft.server.MinecraftServer;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class EconomyConfig {
     private static final Logger LOGGER = LogUtils.getLogger();
     private static final String DEFAULT_RESOURCE_PATH = "/assets/economycraft/config.json";
+    private static final String FILE_NAME = "config.json";
     private static final Gson GSON = new GsonBuilder()
             .setPrettyPrinting()
             .create();
@@ -40,47 +50,120 @@ public class EconomyConfig {
     public boolean shopEnabled = true;
     @SerializedName("orders_enabled")
     public boolean ordersEnabled = true;
+    @SerializedName("listing_expiry_days")
+    public int listingExpiryDays = 0;
+    @SerializedName("order_expiry_days")
+    public int orderExpiryDays = 0;
     @SerializedName("balance_separator")
     public String balanceSeparator = ".";
+    @SerializedName("save_interval_ms")
+    public long saveIntervalMs = 1000;
+    @SerializedName("backup_generations")
+    public int backupGenerations = 3;
+    @SerializedName("balance_storage")
+    public String balanceStorage = BalanceStore.JSON;
 
+    private static final Set<String> RESTART_ONLY = Set.of("balanceStorage");
     private static EconomyConfig INSTANCE = new EconomyConfig();
-    private static Path file;
+    private static volatile Path file;
 
     public static EconomyConfig get() {
         return INSTANCE;
     }
 
     public static void load(MinecraftServer server) {
-        file = EconomyPaths.configDir(server).resolve("config.json");
+        file = EconomyPaths.configDir(server).resolve(FILE_NAME);
+        BundledDefaults defaults = bundledDefaults();
+        Path dataDir = EconomyPaths.dataDir(server);
 
         if (Files.notExists(file)) {
-            copyDefaultFromJarOrThrow();
-        } else {
-            mergeNewDefaultsFromBundledDefault();
+            copyDefaultFromJarOrThrow(defaults);
+            defaults.markMergedInto(dataDir, FILE_NAME);
+        } else if (defaults == null || !defaults.isMergedInto(dataDir, FILE_NAME)) {
+            if (mergeNewDefaultsFromBundledDefault(defaults)) defaults.markMergedInto(dataDir, FILE_NAME);
         }
 
         try {
-            String json = Files.readString(file, StandardCharsets.UTF_8);
-            EconomyConfig parsed = GSON.fromJson(json, EconomyConfig.class);
-            if (parsed == null) {
-                throw new IllegalStateException("config.json parsed to null");
-            }
-            parsed.taxRate = clampPercentage("taxRate", parsed.taxRate);
-            parsed.pvpBalanceLossPercentage = clampPercentage("pvp_balance_loss_percentage", parsed.pvpBalanceLossPercentage);
-            if (parsed.dailyAmount < 0) {
-                LOGGER.warn("[EconomyCraft] dailyAmount ({}) is negative; clamping to 0.", parsed.dailyAmount);
-                parsed.dailyAmount = 0;
-            }
-            if (parsed.balanceSeparator == null || parsed.balanceSeparator.isEmpty()) {
-                LOGGER.warn("[EconomyCraft] balance_separator is empty; defaulting to \".\".");
-                parsed.balanceSeparator = ".";
-            }
-            INSTANCE = parsed;
+            INSTANCE = parse(Files.readString(file, StandardCharsets.UTF_8));
         } catch (Exception e) {
             throw new IllegalStateException("[EconomyCraft] Failed to read/parse config.json at " + file, e);
         }
     }
 
+    @Nullable
+    public static EconomyConfig readFromDisk() {
+        Path path = file;
+        if (path == null) return null;
+        try {
+            return parse(Files.readString(path, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            LOGGER.error("[EconomyCraft] Failed to read/parse config.json at {}", path, e);
+            return null;
+        }
+    }
+
+    public static List<String> applyChanges(EconomyConfig parsed) {
+        List<String> changed = new ArrayList<>();
+        for (Field field : EconomyConfig.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) continue;
+            try {
+                Object value = field.get(parsed);
+                if (Objects.equals(field.get(INSTANCE), value)) continue;
+                SerializedName name = field.getAnnotation(SerializedName.class);
+                String key = name != null ? name.value() : field.getName();
+                if (RESTART_ONLY.contains(field.getName())) {
+                    LOGGER.info("[EconomyCraft] {} changed to {}; it takes effect on restart.", key, value);
+                    continue;
+                }
+                field.set(INSTANCE, value);
+                changed.add(key);
+            } catch (IllegalAccessException e) {
+                LOGGER.error("[EconomyCraft] Failed to apply config setting {}", field.getName(), e);
+            }
+        }
+        return changed;
+    }
+
+    private static EconomyConfig parse(String json) {
+        EconomyConfig parsed = GSON.fromJson(json, EconomyConfig.class);
+        if (parsed == null) {
+            throw new IllegalStateException("config.json parsed to null");
+        }
+        parsed.taxRate = clampPercentage("taxRate", parsed.taxRate);
+        parsed.pvpBalanceLossPercentage = clampPercentage("pvp_balance_loss_percentage", parsed.pvpBalanceLossPercentage);
+        if (parsed.dailyAmount < 0) {
+            LOGGER.warn("[EconomyCraft] dailyAmount ({}) is negative; clamping to 0.", parsed.dailyAmount);
+            parsed.dailyAmount = 0;
+        }
+        if (parsed.listingExpiryDays < 0) {
+            LOGGER.warn("[EconomyCraft] listing_expiry_days ({}) is negative; clamping to 0.", parsed.listingExpiryDays);
+            parsed.listingExpiryDays = 0;
+        }
+        if (parsed.orderExpiryDays < 0) {
+            LOGGER.warn("[EconomyCraft] order_expiry_days ({}) is negative; clamping to 0.", parsed.orderExpiryDays);
+            parsed.orderExpiryDays = 0;
+        }
+        if (parsed.saveIntervalMs < 0) {
+            LOGGER.warn("[EconomyCraft] save_interval_ms ({}) is negative; clamping to 0.", parsed.saveIntervalMs);
+            parsed.saveIntervalMs = 0;
+        }
+        if (parsed.backupGenerations < 0) {
+            LOGGER.warn("[EconomyCraft] backup_generations ({}) is negative; clamping to 0.", parsed.backupGenerations);
+            parsed.backupGenerations = 0;
+        }
+        String storage = parsed.balanceStorage == null ? "" : parsed.balanceStorage.toLowerCase(Locale.ROOT);
+        if (!storage.equals(BalanceStore.JSON) && !storage.equals(BalanceStore.BINARY)) {
+            LOGGER.warn("[EconomyCraft] balance_storage ({}) is not \"json\" or \"binary\"; defaulting to \"json\".", parsed.balanceStorage);
+            storage = BalanceStore.JSON;
+        }
+        parsed.balanceStorage = storage;
+        if (parsed.balanceSeparator == null || parsed.balanceSeparator.isEmpty()) {
+            LOGGER.warn("[EconomyCraft] balance_separator is empty; defaulting to \".\".");
+            parsed.balanceSeparator = ".";
+        }
+        return parsed;
+    }
+
     private static double clampPercentage(String fieldName, double value) {
         double clamped = Math.clamp(value, 0.0, 1.0);
         if (clamped != value) {
@@ -107,26 +190,25 @@ public class EconomyConfig {
         }
     }
 
-    private static void copyDefaultFromJarOrThrow() {
-        try (InputStream in = EconomyConfig.class.getResourceAsStream(DEFAULT_RESOURCE_PATH)) {
-            if (in == null) {
-                throw new IllegalStateException(
-                        "[EconomyCraft] Missing bundled default " + DEFAULT_RESOURCE_PATH +
-                                " (did you forget to include it in resources?)"
-                );
-            }
-            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+    private static void copyDefaultFromJarOrThrow(BundledDefaults defaults) {
+        if (defaults == null) {
+            throw new IllegalStateException(
+                    "[EconomyCraft] Missing bundled default " + DEFAULT_RESOURCE_PATH +
+                            " (did you forget to include it in resources?)"
+            );
+        }
+        try {
+            Files.writeString(file, defaults.json(), StandardCharsets.UTF_8);
             LOGGER.info("[EconomyCraft] Created {} from bundled default {}", file, DEFAULT_RESOURCE_PATH);
         } catch (IOException e) {
             throw new IllegalStateException("[EconomyCraft] Failed to create config.json at " + file, e);
         }
     }
 
-    private static void mergeNewDefaultsFromBundledDefault() {
-        JsonObject defaults = readBundledDefaultJson();
+    private static boolean mergeNewDefaultsFromBundledDefault(BundledDefaults defaults) {
         if (defaults == null) {
             LOGGER.warn("[EconomyCraft] No bundled defaults found; skipping config merge.");
-            return;
+            return false;
         }
 
         JsonObject userRoot;
@@ -135,7 +217,7 @@ public class EconomyConfig {
             JsonElement parsed = JsonParser.parseString(json);
             if (!parsed.isJsonObject()) {
                 LOGGER.warn("[EconomyCraft] config.json root is not an object, skipping merge.");
-                return;
+                return false;
             }
             userRoot = parsed.getAsJsonObject();
         } catch (Exception ex) {
@@ -143,7 +225,7 @@ public class EconomyConfig {
         }
 
         int[] added = new int[]{0};
-        addMissingRecursive(userRoot, defaults, added);
+        addMissingRecursive(userRoot, defaults.copy(), added);
 
         if (added[0] > 0) {
             try {
@@ -152,17 +234,13 @@ public class EconomyConfig {
                 throw new IllegalStateException("[EconomyCraft] Failed to write merged config.json at " + file, ex);
             }
         }
+        return true;
     }
 
-    private static JsonObject readBundledDefaultJson() {
-        try (InputStream in = EconomyConfig.class.getResourceAsStream(DEFAULT_RESOURCE_PATH)) {
-            if (in == null) return null;
-
-            String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
-            JsonElement parsed = JsonParser.parseString(json);
-            if (!parsed.isJsonObject()) return null;
-
-            return parsed.getAsJsonObject();
+    @Nullable
+    private static BundledDefaults bundledDefaults() {
+        try {
+            return BundledDefaults.of(DEFAULT_RESOURCE_PATH);
         } catch (Exception ex) {
             throw new IllegalStateException("[EconomyCraft] Failed to read bundled default config.json from " + DEFAULT_RESOURCE_PATH, ex);
         }
@@ -4,9 +4,11 @@ import com.mojang.logging.LogUtils;
 import com.reazip.economycraft.util.AsyncFileWriter;
 import com.reazip.economycraft.util.ChatCompat;
 import com.reazip.economycraft.util.EconomyPaths;
+import com.reazip.economycraft.util.PersistenceScheduler;
 import dev.architectury.event.events.common.CommandRegistrationEvent;
 import dev.architectury.event.events.common.LifecycleEvent;
 import dev.architectury.event.events.common.PlayerEvent;
+import dev.architectury.event.events.common.TickEvent;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.ClickEvent;
 import net.minecraft.network.chat.Component;
@@ -24,6 +26,7 @@ public final class EconomyCraft {
     public static final String MOD_ID = "economycraft";
     private static EconomyManager manager;
     private static MinecraftServer lastServer;
+    private static ConfigWatcher watcher;
 
     public static void registerEvents() {
         LifecycleEvent.SERVER_STARTING.register(EconomyConfig::load);
@@ -32,13 +35,30 @@ public final class EconomyCraft {
             EconomyCommands.register(dispatcher, registry, selection);
         });
 
-        LifecycleEvent.SERVER_STARTED.register(EconomyCraft::getManager);
+        LifecycleEvent.SERVER_STARTED.register(server -> {
+            getManager(server);
+            watcher = ConfigWatcher.start(server);
+        });
 
         LifecycleEvent.SERVER_STOPPING.register(server -> {
+            if (watcher != null) {
+                watcher.stop();
+                watcher = null;
+            }
             if (manager != null && lastServer == server) {
                 manager.save();
+                manager.detach();
+            }
+            PersistenceScheduler.flush();
+            LOGGER.info("[EconomyCraft] Saved economy data ({} writes, {} superseded writes skipped).",
+                    AsyncFileWriter.completedWrites(), AsyncFileWriter.droppedWrites());
+        });
+
+        TickEvent.SERVER_POST.register(server -> {
+            if (manager != null && lastServer == server) {
+                manager.tick();
             }
-            AsyncFileWriter.flush();
+            PersistenceScheduler.tick();
         });
 
         PlayerEvent.PLAYER_JOIN.register(EconomyCraft::onPlayerJoin);
@@ -48,7 +68,8 @@ public final class EconomyCraft {
         try {
             MinecraftServer server = player.level().getServer();
             EconomyManager eco = getManager(server);
-            eco.getBalance(player.getUUID(), true);
+            eco.recordPlayer(player);
+            eco.getBalance(player.getUUID());
 
             if (eco.getDeliveries().hasDeliveries(player.getUUID())) {
                 sendPrompt(player, "You have unclaimed items: ", "[Claim]", "/eco orders claim");
@@ -93,6 +114,7 @@ public final class EconomyCraft {
         if (manager != null && lastServer == server) {
             manager.detach();
         }
+        PersistenceScheduler.flush();
         manager = null;
         lastServer = null;
 
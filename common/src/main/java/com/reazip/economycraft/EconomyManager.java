@@ -1,16 +1,23 @@
 package com.reazip.economycraft;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.reazip.economycraft.balance.AccountLedger;
+import com.reazip.economycraft.balance.BalanceStore;
+import com.reazip.economycraft.balance.LeaderboardIndex;
 import com.reazip.economycraft.orders.OrderManager;
+import com.reazip.economycraft.orders.OrderMatcher;
+import com.reazip.economycraft.orders.OrderRequest;
+import com.reazip.economycraft.shop.ShopListing;
 import com.reazip.economycraft.shop.ShopManager;
-import com.reazip.economycraft.util.AsyncFileWriter;
 import com.reazip.economycraft.util.EconomyPaths;
 import com.reazip.economycraft.util.IdentityCompat;
+import com.reazip.economycraft.util.NameDirectory;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.scores.DisplaySlot;
 import net.minecraft.world.scores.Objective;
 import net.minecraft.world.scores.Scoreboard;
@@ -18,51 +25,50 @@ import net.minecraft.world.scores.ScoreHolder;
 import net.minecraft.world.scores.criteria.ObjectiveCriteria;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
-import java.lang.reflect.Type;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.time.LocalDate;
 
 public class EconomyManager {
-    private static final Gson GSON = new Gson();
-    private static final Type TYPE = new TypeToken<Map<UUID, Long>>(){}.getType();
-    private static final Type DAILY_SELL_TYPE = new TypeToken<Map<UUID, DailySellData>>(){}.getType();
     private static final String ECO_BALANCE_OBJECTIVE = "eco_balance";
     private static final int LEADERBOARD_SIZE = 5;
 
     private final MinecraftServer server;
-    private final Path file;
-    private final Path dailyFile;
-    private final Path dailySellFile;
-
-    private final Map<UUID, Long> balances = new ConcurrentHashMap<>();
-    private final Map<UUID, Long> lastDaily = new ConcurrentHashMap<>();
-    private final Map<UUID, DailySellData> dailySells = new ConcurrentHashMap<>();
-    private volatile Map<UUID, String> diskUserCache = null;
+    private final BalanceStore store;
+
+    private final AccountLedger ledger = new AccountLedger();
+    private final LeaderboardIndex leaderboard = new LeaderboardIndex();
+    private final NameDirectory names;
     private final PriceRegistry prices;
 
     private Objective objective;
     private final DeliveryManager deliveries;
     private final ShopManager shop;
     private final OrderManager orders;
+    private final OrderMatcher matcher;
     private final Map<UUID, String> displayed = new ConcurrentHashMap<>();
+    private volatile boolean scoreboardDirty;
 
     public static final long MAX = 999_999_999L;
+    private static final long REFUND_RETRY_MS = TimeUnit.MINUTES.toMillis(10);
 
     public EconomyManager(MinecraftServer server) {
         this.server = server;
         Path dataDir = EconomyPaths.dataDir(server);
-
-        this.file = dataDir.resolve("balances.json");
-        this.dailyFile = dataDir.resolve("daily.json");
-        this.dailySellFile = dataDir.resolve("daily_sells.json");
-
-        load();
-        loadDaily();
-        loadDailySells();
+        this.names = new NameDirectory(server.getFile("usercache.json"));
+        names.refresh();
+        names.listen(leaderboard::rename);
+
+        this.store = BalanceStore.open(dataDir);
+        if (store.load((id, balance, daily, sellDay, sellAmount) -> ledger.load(id,
+                balance == BalanceStore.NONE ? AccountLedger.NONE : clamp(balance), daily, sellDay, sellAmount))) {
+            save();
+        }
+        ledger.attach(store);
+        ledger.forEachBalance((id, balance) -> leaderboard.update(id, balance, resolveName(server, id)));
+        ledger.listen((id, previous, balance) -> leaderboard.refresh(id, ledger, knownName(id)));
 
         this.deliveries = new DeliveryManager(server);
         this.shop = new ShopManager(server, deliveries);
@@ -70,6 +76,64 @@ public class EconomyManager {
 
         applyScoreboardSettingOnStartup();
         this.prices = new PriceRegistry(server);
+        this.matcher = new OrderMatcher(this);
+    }
+
+    public void tick() {
+        names.poll();
+        matcher.tick();
+        long now = System.currentTimeMillis();
+        refundExpired(orders.expire(now), now);
+        returnExpired(shop.expire(now));
+        shop.flushChanges();
+        orders.flushChanges();
+        if (scoreboardDirty) {
+            scoreboardDirty = false;
+            updateLeaderboard();
+        }
+    }
+
+    private void refundExpired(List<OrderRequest> expired, long now) {
+        if (expired.isEmpty()) return;
+        Transaction refund = transaction();
+        for (OrderRequest r : expired) {
+            if (r.requester != null && r.escrow > 0) refund.credit(r.requester, r.escrow);
+        }
+        boolean refundedAll = refund.commit();
+        for (OrderRequest r : expired) {
+            long refunded = r.escrow;
+            if (!refundedAll && r.requester != null && refunded > 0
+                    && !transaction().credit(r.requester, refunded).commit()) {
+                orders.retain(r, now + REFUND_RETRY_MS);
+                notifyExpired(r.requester, "Your request for " + r.amount + "x " + r.item.getHoverName().getString()
+                        + " expired but your balance is too full to refund " + EconomyCraft.formatMoney(refunded));
+                continue;
+            }
+            r.escrow = 0;
+            notifyExpired(r.requester, "Your request for " + r.amount + "x " + r.item.getHoverName().getString()
+                    + " expired" + (refunded > 0 ? " and " + EconomyCraft.formatMoney(refunded) + " was refunded" : ""));
+        }
+    }
+
+    private void returnExpired(List<ShopListing> expired) {
+        if (expired.isEmpty()) return;
+        Map<UUID, List<ItemStack>> returned = new HashMap<>();
+        for (ShopListing l : expired) {
+            if (l.seller == null || l.item == null || l.item.isEmpty()) continue;
+            returned.computeIfAbsent(l.seller, k -> new ArrayList<>()).add(l.item);
+        }
+        deliveries.addDeliveries(returned);
+        for (ShopListing l : expired) {
+            if (l.item == null || l.item.isEmpty()) continue;
+            notifyExpired(l.seller, "Your listing of " + l.item.getCount() + "x " + l.item.getHoverName().getString()
+                    + " expired and was returned to your deliveries");
+        }
+    }
+
+    private void notifyExpired(@Nullable UUID owner, String message) {
+        if (owner == null) return;
+        ServerPlayer player = server.getPlayerList().getPlayer(owner);
+        if (player != null) player.sendSystemMessage(Component.literal(message).withStyle(ChatFormatting.YELLOW));
     }
 
     public MinecraftServer getServer() {
@@ -78,39 +142,18 @@ public class EconomyManager {
 
     public void detach() {
         teardownObjective(server.getScoreboard());
-    }
-
-    private synchronized void ensureDiskUserCacheLoaded() {
-        if (diskUserCache != null) return;
-        Map<UUID, String> cache = new HashMap<>();
-        try {
-            Path uc = server.getFile("usercache.json");
-            if (!Files.exists(uc)) {
-                diskUserCache = cache;
-                return;
-            }
-
-            String json = Files.readString(uc);
-            UserCacheEntry[] entries = GSON.fromJson(json, UserCacheEntry[].class);
-            if (entries != null) {
-                for (UserCacheEntry e : entries) {
-                    if (e == null || e.uuid == null || e.uuid.isBlank() || e.name == null || e.name.isBlank()) continue;
-                    try {
-                        cache.put(UUID.fromString(e.uuid), e.name);
-                    } catch (IllegalArgumentException ignored) {}
-                }
-            }
-        } catch (IOException ignored) {}
-        diskUserCache = cache;
+        store.close();
     }
 
     private String resolveName(MinecraftServer server, UUID id) {
         ServerPlayer online = server.getPlayerList().getPlayer(id);
         if (online != null) return IdentityCompat.of(online).name();
-        ensureDiskUserCacheLoaded();
-        String fromDisk = diskUserCache.get(id);
-        if (fromDisk != null && !fromDisk.isBlank()) return fromDisk;
-        return id.toString();
+        return knownName(id);
+    }
+
+    private String knownName(UUID id) {
+        String known = names.name(id);
+        return known != null ? known : id.toString();
     }
 
     public @Nullable String getBestName(UUID id) {
@@ -123,103 +166,81 @@ public class EconomyManager {
         ServerPlayer online = server.getPlayerList().getPlayerByName(name);
         if (online != null) return online.getUUID();
 
-        ensureDiskUserCacheLoaded();
-        for (var e : diskUserCache.entrySet()) {
-            if (name.equalsIgnoreCase(e.getValue())) return e.getKey();
-        }
+        UUID known = names.id(name);
+        if (known != null) return known;
 
         try { return UUID.fromString(name); } catch (IllegalArgumentException ignored) {}
 
         return null;
     }
 
-    public Long getBalance(UUID player, boolean newBalanceIfNonExistent) {
-        if (!balances.containsKey(player)) {
-            if (newBalanceIfNonExistent) {
-                long balance = clamp(EconomyConfig.get().startingBalance);
-                balances.put(player, balance);
-                updateLeaderboard();
-                return balance;
-            } else {
-                return null;
-            }
-        }
-        return balances.get(player);
+    public void recordPlayer(ServerPlayer player) {
+        UUID id = player.getUUID();
+        String name = IdentityCompat.of(player).name();
+        names.record(id, name);
+    }
+
+    public boolean hasAccount(UUID player) {
+        return ledger.has(player);
+    }
+
+    public int getAccountCount() {
+        return ledger.size();
+    }
+
+    public void forEachBalance(AccountLedger.BalanceVisitor visitor) {
+        ledger.forEachBalance(visitor);
+    }
+
+    public long getBalance(UUID player) {
+        long balance = ledger.balance(player);
+        if (balance != AccountLedger.NONE) return balance;
+
+        balance = clamp(EconomyConfig.get().startingBalance);
+        if (!ledger.compareAndSet(player, AccountLedger.NONE, balance)) return ledger.balance(player);
+        checkpointIfDue();
+        scoreboardDirty = true;
+        return balance;
     }
 
     public void addMoney(UUID player, long amount) {
-        balances.put(player, clamp(getBalance(player, true) + amount));
-        updateLeaderboard();
-        save();
+        getBalance(player);
+        ledger.add(player, amount, 0, MAX);
+        checkpointIfDue();
+        scoreboardDirty = true;
     }
 
     public void setMoney(UUID player, long amount) {
-        balances.put(player, clamp(amount));
-        updateLeaderboard();
-        save();
+        long balance = clamp(amount);
+        ledger.set(player, balance);
+        checkpointIfDue();
+        scoreboardDirty = true;
     }
 
     public boolean removeMoney(UUID player, long amount) {
         if (amount < 0) return false;
-        long balance = getBalance(player, true);
-        if (balance < amount) return false;
-        balances.put(player, clamp(balance - amount));
-        updateLeaderboard();
-        save();
+        getBalance(player);
+        if (!ledger.withdraw(player, amount)) return false;
+        checkpointIfDue();
+        scoreboardDirty = true;
         return true;
     }
 
     public boolean pay(UUID from, UUID to, long amount) {
-        Long balance = getBalance(from, false);
-        if (balance == null || balance < amount) return false;
-        if (!removeMoney(from, amount)) return false;
-        addMoney(to, amount);
-        return true;
+        if (!ledger.has(from)) return false;
+        return transaction().debit(from, amount).credit(to, amount).commit();
     }
 
-    public void load() {
-        if (Files.exists(file)) {
-            try {
-                String json = Files.readString(file);
-                Map<UUID, Double> map = GSON.fromJson(json, new TypeToken<Map<UUID, Double>>(){}.getType());
-                if (map != null) {
-                    for (Map.Entry<UUID, Double> e : map.entrySet()) {
-                        if (e.getValue() == null) continue;
-                        balances.put(e.getKey(), clamp(e.getValue().longValue()));
-                    }
-                }
-            } catch (IOException ignored) {}
-        }
+    public Transaction transaction() {
+        return new Transaction();
     }
 
     public void save() {
-        AsyncFileWriter.writeAsync(file, GSON.toJson(new HashMap<>(balances), TYPE));
-        AsyncFileWriter.writeAsync(dailyFile, GSON.toJson(new HashMap<>(lastDaily), new TypeToken<Map<UUID, Long>>(){}.getType()));
-        AsyncFileWriter.writeAsync(dailySellFile, GSON.toJson(new HashMap<>(dailySells), DAILY_SELL_TYPE));
-    }
-
-    private void loadDaily() {
-        if (Files.exists(dailyFile)) {
-            try {
-                String json = Files.readString(dailyFile);
-                Map<UUID, Long> map = GSON.fromJson(json, new TypeToken<Map<UUID, Long>>(){}.getType());
-                if (map != null) {
-                    for (Map.Entry<UUID, Long> e : map.entrySet()) {
-                        if (e.getValue() != null) lastDaily.put(e.getKey(), e.getValue());
-                    }
-                }
-            } catch (IOException ignored) {}
-        }
+        store.save(ledger);
     }
 
-    private void loadDailySells() {
-        if (Files.exists(dailySellFile)) {
-            try {
-                String json = Files.readString(dailySellFile);
-                Map<UUID, DailySellData> map = GSON.fromJson(json, DAILY_SELL_TYPE);
-                if (map != null) dailySells.putAll(map);
-            } catch (IOException ignored) {}
-        }
+    private void checkpointIfDue() {
+        if (store.checkpointDue()) save();
     }
 
     private void applyScoreboardSettingOnStartup() {
@@ -295,34 +316,90 @@ public class EconomyManager {
     }
 
     private List<LeaderboardEntry> computeLeaderboard(int limit) {
-        List<Map.Entry<UUID, Long>> sorted = new ArrayList<>(balances.entrySet());
-        sorted.sort((a, b) -> {
-            int c = Long.compare(b.getValue(), a.getValue());
-            if (c != 0) return c;
-
-            String an = resolveName(server, a.getKey());
-            String bn = resolveName(server, b.getKey());
-            c = String.CASE_INSENSITIVE_ORDER.compare(an, bn);
-            if (c != 0) return c;
+        return getLeaderboard(0, limit);
+    }
 
-            return a.getKey().compareTo(b.getKey());
+    public List<LeaderboardEntry> getLeaderboard(int offset, int limit) {
+        int expected = Math.max(0, Math.min(limit, leaderboard.size() - offset));
+        List<UUID> ids = new ArrayList<>(expected);
+        LongList balances = new LongArrayList(expected);
+        leaderboard.range(offset, limit, (id, balance) -> {
+            ids.add(id);
+            balances.add(balance);
         });
-
-        List<LeaderboardEntry> result = new ArrayList<>();
-        for (var e : sorted.stream().limit(limit).toList()) {
-            result.add(new LeaderboardEntry(e.getKey(), resolveName(server, e.getKey()), e.getValue()));
+        List<LeaderboardEntry> result = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            result.add(new LeaderboardEntry(ids.get(i), resolveName(server, ids.get(i)), balances.getLong(i)));
         }
         return result;
     }
 
     public @Nullable LeaderboardEntry getLeaderboardEntry(int rank) {
         if (rank < 1) return null;
-        List<LeaderboardEntry> top = computeLeaderboard(rank);
-        return top.size() < rank ? null : top.get(rank - 1);
+        List<LeaderboardEntry> entry = getLeaderboard(rank - 1, 1);
+        return entry.isEmpty() ? null : entry.get(0);
+    }
+
+    public int getRank(UUID player) {
+        return leaderboard.rankOf(player) + 1;
+    }
+
+    public int getLeaderboardSize() {
+        return leaderboard.size();
     }
 
     public record LeaderboardEntry(UUID id, String name, long balance) {}
 
+    public final class Transaction {
+        private final List<UUID> accounts = new ArrayList<>(3);
+        private long[] deltas = new long[3];
+        private boolean invalid;
+        private boolean committed;
+
+        private Transaction() {}
+
+        public Transaction debit(UUID account, long amount) {
+            return leg(account, amount, -amount);
+        }
+
+        public Transaction credit(UUID account, long amount) {
+            return leg(account, amount, amount);
+        }
+
+        private Transaction leg(UUID account, long amount, long delta) {
+            if (committed) throw new IllegalStateException("Transaction already committed");
+            if (account == null || amount < 0) {
+                invalid = true;
+                return this;
+            }
+            int i = accounts.indexOf(account);
+            if (i < 0) {
+                i = accounts.size();
+                accounts.add(account);
+                if (i == deltas.length) deltas = Arrays.copyOf(deltas, i * 2);
+            }
+            deltas[i] += delta;
+            return this;
+        }
+
+        public boolean commit() {
+            if (committed) throw new IllegalStateException("Transaction already committed");
+            committed = true;
+            if (invalid) return false;
+            if (accounts.isEmpty()) return true;
+
+            UUID[] ids = accounts.toArray(new UUID[0]);
+            for (UUID id : ids) {
+                getBalance(id);
+            }
+            if (!ledger.apply(ids, Arrays.copyOf(deltas, ids.length), 0, MAX)) return false;
+
+            checkpointIfDue();
+            scoreboardDirty = true;
+            return true;
+        }
+    }
+
     public boolean toggleScoreboard() {
         EconomyConfig.get().scoreboardEnabled = !EconomyConfig.get().scoreboardEnabled;
         EconomyConfig.save();
@@ -352,40 +429,37 @@ public class EconomyManager {
         return prices;
     }
 
-    public Map<UUID, Long> getBalances() {
-        return balances;
-    }
-
     public void removePlayer(UUID id) {
-        balances.remove(id);
-        updateLeaderboard();
-        save();
+        ledger.set(id, AccountLedger.NONE);
+        checkpointIfDue();
+        scoreboardDirty = true;
     }
 
     public boolean claimDaily(UUID player) {
         long today = LocalDate.now().toEpochDay();
-        long last = lastDaily.getOrDefault(player, -1L);
-        if (last == today) return false;
-        lastDaily.put(player, today);
+        if (ledger.lastDaily(player) == today) return false;
+        ledger.setLastDaily(player, today);
+        checkpointIfDue();
         addMoney(player, EconomyConfig.get().dailyAmount);
         return true;
     }
 
     public boolean hasClaimedDailyToday(UUID player) {
-        return lastDaily.getOrDefault(player, -1L) == LocalDate.now().toEpochDay();
+        return ledger.lastDaily(player) == LocalDate.now().toEpochDay();
     }
 
     public boolean tryRecordDailySell(UUID player, long saleAmount) {
         long limit = EconomyConfig.get().dailySellLimit;
         if (limit <= 0) return false;
 
-        DailySellData data = getOrCreateTodaySellData(player);
-        long newTotal = data.amount() + saleAmount;
+        long today = LocalDate.now().toEpochDay();
+        long newTotal = todaySellAmount(player, today) + saleAmount;
         if (newTotal > limit) {
             return true;
         }
 
-        dailySells.put(player, new DailySellData(data.day(), newTotal));
+        ledger.setDailySell(player, today, newTotal);
+        checkpointIfDue();
         return false;
     }
 
@@ -393,18 +467,11 @@ public class EconomyManager {
         long limit = EconomyConfig.get().dailySellLimit;
         if (limit <= 0) return Long.MAX_VALUE;
 
-        DailySellData data = getOrCreateTodaySellData(player);
-        return Math.max(0, limit - data.amount());
+        return Math.max(0, limit - todaySellAmount(player, LocalDate.now().toEpochDay()));
     }
 
-    private DailySellData getOrCreateTodaySellData(UUID player) {
-        long today = LocalDate.now().toEpochDay();
-        DailySellData data = dailySells.get(player);
-        if (data == null || data.day() != today) {
-            data = new DailySellData(today, 0L);
-            dailySells.put(player, data);
-        }
-        return data;
+    private long todaySellAmount(UUID player, long today) {
+        return ledger.sellDay(player) == today ? ledger.sellAmount(player) : 0L;
     }
 
     public void handlePvpKill(ServerPlayer victim, ServerPlayer killer) {
@@ -413,14 +480,12 @@ public class EconomyManager {
         if (victim == null || killer == null) return;
         if (victim.getUUID().equals(killer.getUUID())) return;
 
-        long victimBal = getBalance(victim.getUUID(), true);
+        long victimBal = getBalance(victim.getUUID());
         if (victimBal <= 0L) return;
 
         long loss = Math.min((long)Math.floor(pct * victimBal), victimBal);
         if (loss <= 0L) return;
-        if (!removeMoney(victim.getUUID(), loss)) return;
-
-        addMoney(killer.getUUID(), loss);
+        if (!transaction().debit(victim.getUUID(), loss).credit(killer.getUUID(), loss).commit()) return;
 
         victim.sendSystemMessage(Component.literal(
                 "You lost " + EconomyCraft.formatMoney(loss) + " for being killed by " + killer.getName().getString())
@@ -434,11 +499,4 @@ public class EconomyManager {
     private long clamp(long value) {
         return Math.clamp(value, 0, MAX);
     }
-
-    private static final class UserCacheEntry {
-        String name;
-        String uuid;
-    }
-
-    private record DailySellData(long day, long amount) {}
 }
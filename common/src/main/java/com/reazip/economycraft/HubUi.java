@@ -58,7 +58,7 @@ public final class HubUi {
         EconomyManager eco = EconomyCraft.getManager(player.level().getServer());
         PlayerPickerUi.open(player, "Pay who?", false,
                 (picker, target) -> {
-                    long balance = eco.getBalance(picker.getUUID(), true);
+                    long balance = eco.getBalance(picker.getUUID());
                     if (balance <= 0) {
                         picker.sendSystemMessage(MenuUiSupport.line("You have no money to send.", ChatFormatting.RED));
                         open(picker);
@@ -139,7 +139,7 @@ public final class HubUi {
 
             ItemStack balance = MenuUiSupport.createBalanceItem(viewer);
             List<Component> balanceLore = new ArrayList<>();
-            balanceLore.add(MenuUiSupport.balanceLore(eco.getBalance(viewer.getUUID(), true)));
+            balanceLore.add(MenuUiSupport.balanceLore(eco.getBalance(viewer.getUUID())));
             if (config.dailySellLimit > 0) {
                 balanceLore.add(MenuUiSupport.labeledValue("Sell limit left today",
                         EconomyCraft.formatMoney(eco.getDailySellRemaining(viewer.getUUID())),
@@ -299,11 +299,11 @@ public final class HubUi {
             container.clearContent();
             EconomyManager eco = EconomyCraft.getManager(viewer.level().getServer());
 
-            boolean any = false;
-            for (int rank = 1; rank <= 10; rank++) {
-                EconomyManager.LeaderboardEntry entry = eco.getLeaderboardEntry(rank);
-                if (entry == null) break;
-                any = true;
+            List<EconomyManager.LeaderboardEntry> top = eco.getLeaderboard(0, 10);
+            boolean any = !top.isEmpty();
+            for (int i = 0; i < top.size(); i++) {
+                EconomyManager.LeaderboardEntry entry = top.get(i);
+                int rank = i + 1;
 
                 ServerPlayer online = viewer.level().getServer().getPlayerList().getPlayer(entry.id());
                 ItemStack head = MenuUiSupport.createBalanceItem(eco, entry.id(), online, entry.name());
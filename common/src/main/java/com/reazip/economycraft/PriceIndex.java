@@ -0,0 +1,390 @@
+package com.reazip.economycraft;
+
+import com.reazip.economycraft.PriceRegistry.PriceEntry;
+import com.reazip.economycraft.util.IdentifierCompat;
+import com.reazip.economycraft.util.MenuUiSupport;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import net.minecraft.core.Holder;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.item.alchemy.Potion;
+import net.minecraft.world.item.alchemy.PotionContents;
+import net.minecraft.world.item.enchantment.Enchantment;
+import net.minecraft.world.item.enchantment.ItemEnchantments;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class PriceIndex {
+    private static final Candidates[] NONE = new Candidates[0];
+    private static final String BOOK_PREFIX = "enchanted_book_";
+    private static final AtomicLong REVISIONS = new AtomicLong();
+
+    private final Map<Item, Candidates> items = new IdentityHashMap<>();
+    private final Map<Item, Map<Potion, Candidates[]>> potions = new IdentityHashMap<>();
+    private final Map<Item, Candidates[]> water = new IdentityHashMap<>();
+    private final Map<Enchantment, Candidates[][]> books = new IdentityHashMap<>();
+    private final Map<String, PriceEntry> byKey = new HashMap<>();
+    final Map<IdentifierCompat.Id, List<PriceEntry>> prices;
+    final CategoryView all;
+    final CategoryView buyable;
+    final PriceSearch search;
+    final long revision = REVISIONS.incrementAndGet();
+
+    PriceIndex(Map<IdentifierCompat.Id, List<PriceEntry>> prices, HolderLookup.Provider registries) {
+        Map<String, Candidates> byId = new HashMap<>();
+        Map<IdentifierCompat.Id, List<PriceEntry>> frozen = new LinkedHashMap<>();
+        List<PriceEntry> entries = new ArrayList<>();
+        for (Map.Entry<IdentifierCompat.Id, List<PriceEntry>> e : prices.entrySet()) {
+            frozen.put(e.getKey(), List.copyOf(e.getValue()));
+            Candidates candidates = Candidates.of(e.getKey(), e.getValue());
+            byId.put(e.getKey().asString(), candidates);
+            IdentifierCompat.registryGetOptional(BuiltInRegistries.ITEM, e.getKey())
+                    .ifPresent(item -> items.put(item, candidates));
+            for (PriceEntry p : e.getValue()) {
+                entries.add(p);
+                byKey.putIfAbsent(p.key(), p);
+            }
+        }
+
+        this.prices = Collections.unmodifiableMap(frozen);
+        indexPotions(byId);
+        indexBooks(byId, registries);
+        this.all = new CategoryView(entries);
+        this.buyable = new CategoryView(entries.stream().filter(p -> p.unitBuy() > 0).toList());
+        this.search = new PriceSearch(all.entries, PriceIndex::searchNames);
+    }
+
+    private static List<String> searchNames(PriceEntry p) {
+        if (p.customItem() != null) return MenuUiSupport.searchText(p.customItem());
+        return IdentifierCompat.registryGetOptional(BuiltInRegistries.ITEM, p.id())
+                .map(item -> List.of(new ItemStack(item).getHoverName().getString()))
+                .orElseGet(() -> List.of(p.id().path().replace('_', ' ')));
+    }
+
+    @Nullable
+    PriceEntry byKey(String key) {
+        return byKey.get(key);
+    }
+
+    @Nullable
+    PriceEntry resolve(ItemStack stack) {
+        Item item = stack.getItem();
+        for (Candidates c : potionCandidates(stack, item)) {
+            PriceEntry p = c.pick(stack);
+            if (p != null) return p;
+        }
+        if (item == Items.ENCHANTED_BOOK && !books.isEmpty()) {
+            ItemEnchantments stored = stack.getOrDefault(DataComponents.STORED_ENCHANTMENTS, ItemEnchantments.EMPTY);
+            for (Object2IntMap.Entry<Holder<Enchantment>> e : stored.entrySet()) {
+                for (Candidates c : bookCandidates(e.getKey(), e.getIntValue())) {
+                    PriceEntry p = c.pick(stack);
+                    if (p != null) return p;
+                }
+            }
+        }
+        Candidates plain = items.get(item);
+        return plain == null ? null : plain.pick(stack);
+    }
+
+    boolean matchesPlain(ItemStack stack, IdentifierCompat.Id id) {
+        Item item = stack.getItem();
+        for (Candidates c : potionCandidates(stack, item)) {
+            if (c.id().equals(id)) return c.customMatch(stack) == null;
+        }
+        if (item == Items.ENCHANTED_BOOK && !books.isEmpty()) {
+            ItemEnchantments stored = stack.getOrDefault(DataComponents.STORED_ENCHANTMENTS, ItemEnchantments.EMPTY);
+            for (Object2IntMap.Entry<Holder<Enchantment>> e : stored.entrySet()) {
+                for (Candidates c : bookCandidates(e.getKey(), e.getIntValue())) {
+                    if (c.id().equals(id)) return c.customMatch(stack) == null;
+                }
+            }
+        }
+        Candidates plain = items.get(item);
+        return plain != null && plain.id().equals(id) && plain.customMatch(stack) == null;
+    }
+
+    int comparisons(ItemStack stack) {
+        Candidates plain = items.get(stack.getItem());
+        return plain == null ? 0 : plain.comparisons(stack);
+    }
+
+    private Candidates[] potionCandidates(ItemStack stack, Item item) {
+        Map<Potion, Candidates[]> table = potions.get(item);
+        if (table == null) return NONE;
+        PotionContents contents = stack.get(DataComponents.POTION_CONTENTS);
+        Optional<Holder<Potion>> potion = contents == null ? Optional.empty() : contents.potion();
+        Candidates[] found = potion.isEmpty() ? water.get(item) : table.get(potion.get().value());
+        return found == null ? NONE : found;
+    }
+
+    private Candidates[] bookCandidates(Holder<Enchantment> holder, int level) {
+        if (level <= 0) return NONE;
+        Candidates[][] levels = books.get(holder.value());
+        if (levels == null || level >= levels.length || levels[level] == null) return NONE;
+        return levels[level];
+    }
+
+    private void indexPotions(Map<String, Candidates> byId) {
+        IdentifierCompat.Id waterId = IdentifierCompat.withDefaultNamespace("water");
+        for (Item form : new Item[]{Items.POTION, Items.SPLASH_POTION, Items.LINGERING_POTION, Items.TIPPED_ARROW}) {
+            Map<Potion, Candidates[]> table = new IdentityHashMap<>();
+            for (Object entry : BuiltInRegistries.POTION) {
+                Potion potion = unwrap(entry);
+                if (potion == null) continue;
+                Candidates[] found = present(byId, virtualPotionKeys(form, IdentifierCompat.wrap(BuiltInRegistries.POTION.getKey(potion))));
+                if (found.length > 0) table.put(potion, found);
+            }
+            potions.put(form, table);
+
+            Candidates[] plainWater = present(byId, virtualPotionKeys(form, waterId));
+            if (plainWater.length > 0) water.put(form, plainWater);
+        }
+    }
+
+    private void indexBooks(Map<String, Candidates> byId, HolderLookup.Provider registries) {
+        Map<String, Integer> maxLevel = new HashMap<>();
+        for (Candidates c : byId.values()) {
+            String path = c.id().path();
+            if (!path.startsWith(BOOK_PREFIX)) continue;
+            String rest = path.substring(BOOK_PREFIX.length());
+            int underscore = rest.lastIndexOf('_');
+            if (underscore <= 0 || underscore >= rest.length() - 1) continue;
+            int level;
+            try {
+                level = Integer.parseInt(rest.substring(underscore + 1));
+            } catch (NumberFormatException ex) {
+                continue;
+            }
+            if (level <= 0) continue;
+            String enchant = rest.substring(0, underscore);
+            if (enchant.equals("curse_of_binding")) enchant = "binding_curse";
+            else if (enchant.equals("curse_of_vanishing")) enchant = "vanishing_curse";
+            maxLevel.merge(c.id().namespace() + ":" + enchant, level, Math::max);
+        }
+        if (maxLevel.isEmpty()) return;
+
+        HolderLookup.RegistryLookup<Enchantment> lookup = registries.lookupOrThrow(Registries.ENCHANTMENT);
+        for (Map.Entry<String, Integer> e : maxLevel.entrySet()) {
+            IdentifierCompat.Id enchantId = IdentifierCompat.tryParse(e.getKey());
+            if (enchantId == null) continue;
+            ResourceKey<Enchantment> key = IdentifierCompat.createResourceKey(Registries.ENCHANTMENT, enchantId);
+            if (key == null) continue;
+            Optional<Holder.Reference<Enchantment>> holder = lookup.get(key);
+            if (holder.isEmpty()) continue;
+
+            Candidates[][] levels = new Candidates[e.getValue() + 1][];
+            for (int level = 1; level < levels.length; level++) {
+                List<String> keys = new ArrayList<>(2);
+                keys.add(enchantId.namespace() + ":" + BOOK_PREFIX + enchantId.path() + "_" + level);
+                if ("binding_curse".equals(enchantId.path())) {
+                    keys.add(enchantId.namespace() + ":" + BOOK_PREFIX + "curse_of_binding_" + level);
+                } else if ("vanishing_curse".equals(enchantId.path())) {
+                    keys.add(enchantId.namespace() + ":" + BOOK_PREFIX + "curse_of_vanishing_" + level);
+                }
+                Candidates[] found = present(byId, keys);
+                if (found.length > 0) levels[level] = found;
+            }
+            books.put(holder.get().value(), levels);
+        }
+    }
+
+    private static Candidates[] present(Map<String, Candidates> byId, List<String> keys) {
+        List<Candidates> out = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Candidates c = byId.get(key);
+            if (c != null) out.add(c);
+        }
+        return out.isEmpty() ? NONE : out.toArray(NONE);
+    }
+
+    private static List<String> virtualPotionKeys(Item form, IdentifierCompat.Id potionId) {
+        String potionPath = potionId.path();
+        String kind;
+        if (form == Items.SPLASH_POTION) kind = "splash";
+        else if (form == Items.LINGERING_POTION) kind = "lingering";
+        else if (form == Items.TIPPED_ARROW) kind = "arrow";
+        else kind = "potion";
+
+        if (potionPath.equals("water")) {
+            String key = switch (kind) {
+                case "splash" -> "splash_water_bottle";
+                case "lingering" -> "lingering_water_bottle";
+                case "arrow" -> "arrow_of_water_1";
+                default -> "water_bottle";
+            };
+            return List.of("minecraft:" + key);
+        }
+
+        if (potionPath.equals("awkward") || potionPath.equals("mundane") || potionPath.equals("thick")) {
+            String key = switch (kind) {
+                case "splash" -> potionPath + "_splash_potion";
+                case "lingering" -> potionPath + "_lingering_potion";
+                case "arrow" -> "arrow_of_" + potionPath + "_1";
+                default -> potionPath + "_potion";
+            };
+            return List.of("minecraft:" + key);
+        }
+
+        String effect = potionPath;
+        String suffix = "_1";
+        if (effect.startsWith("long_")) {
+            effect = effect.substring("long_".length());
+            suffix = "_extended";
+        } else if (effect.startsWith("strong_")) {
+            effect = effect.substring("strong_".length());
+            suffix = "_2";
+        }
+
+        if (effect.equals("turtle_master")) {
+            effect = "the_turtle_master";
+        }
+
+        String base = "minecraft:" + switch (kind) {
+            case "splash" -> "splash_potion_of_" + effect;
+            case "lingering" -> "lingering_potion_of_" + effect;
+            case "arrow" -> "arrow_of_" + effect;
+            default -> "potion_of_" + effect;
+        };
+
+        if (suffix.equals("_1")) {
+            return List.of(base + "_1", base);
+        }
+        return List.of(base + suffix);
+    }
+
+    @Nullable
+    private static Potion unwrap(Object value) {
+        Object current = value;
+        while (current instanceof Holder<?> holder) {
+            current = holder.value();
+        }
+        return current instanceof Potion potion ? potion : null;
+    }
+
+    static String normalizeCategory(String category) {
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static final class CategoryView {
+        final List<PriceEntry> entries;
+        final Set<String> categories;
+        final List<String> topCategories;
+        private final Map<String, List<PriceEntry>> byCategory;
+        private final Map<String, List<String>> subcategories;
+
+        CategoryView(List<PriceEntry> entries) {
+            Set<String> categories = new LinkedHashSet<>();
+            Set<String> tops = new LinkedHashSet<>();
+            Map<String, List<PriceEntry>> byCategory = new HashMap<>();
+            Map<String, Set<String>> subs = new HashMap<>();
+            for (PriceEntry p : entries) {
+                if (p.category() == null) continue;
+                String cat = p.category();
+                categories.add(cat);
+                int dot = cat.indexOf('.');
+                tops.add(dot > 0 ? cat.substring(0, dot) : cat);
+                byCategory.computeIfAbsent(normalizeCategory(cat), k -> new ArrayList<>()).add(p);
+
+                String trimmed = cat.trim();
+                int trimmedDot = trimmed.indexOf('.');
+                if (trimmedDot > 0 && trimmedDot < trimmed.length() - 1) {
+                    subs.computeIfAbsent(trimmed.substring(0, trimmedDot).toLowerCase(Locale.ROOT), k -> new LinkedHashSet<>())
+                            .add(trimmed.substring(trimmedDot + 1));
+                }
+            }
+
+            this.entries = List.copyOf(entries);
+            this.categories = Collections.unmodifiableSet(categories);
+            this.topCategories = List.copyOf(tops);
+            Map<String, List<PriceEntry>> frozen = new HashMap<>();
+            byCategory.forEach((k, v) -> frozen.put(k, List.copyOf(v)));
+            this.byCategory = Map.copyOf(frozen);
+            Map<String, List<String>> frozenSubs = new HashMap<>();
+            subs.forEach((k, v) -> frozenSubs.put(k, List.copyOf(v)));
+            this.subcategories = Map.copyOf(frozenSubs);
+        }
+
+        List<PriceEntry> byCategory(String normalizedCategory) {
+            return byCategory.getOrDefault(normalizedCategory, List.of());
+        }
+
+        List<String> subcategories(String normalizedTop) {
+            return subcategories.getOrDefault(normalizedTop, List.of());
+        }
+    }
+
+    private record Candidates(IdentifierCompat.Id id, Int2ObjectMap<PriceEntry[]> custom, @Nullable PriceEntry plain) {
+        static Candidates of(IdentifierCompat.Id id, List<PriceEntry> entries) {
+            Int2ObjectOpenHashMap<PriceEntry[]> custom = new Int2ObjectOpenHashMap<>();
+            PriceEntry plain = null;
+            for (PriceEntry p : entries) {
+                if (p.customItem() != null) {
+                    int hash = componentHash(p.customItem());
+                    PriceEntry[] bucket = custom.get(hash);
+                    if (bucket == null) {
+                        custom.put(hash, new PriceEntry[]{p});
+                    } else {
+                        PriceEntry[] grown = Arrays.copyOf(bucket, bucket.length + 1);
+                        grown[bucket.length] = p;
+                        custom.put(hash, grown);
+                    }
+                } else if (plain == null) {
+                    plain = p;
+                }
+            }
+            custom.trim();
+            return new Candidates(id, custom, plain);
+        }
+
+        @Nullable
+        PriceEntry pick(ItemStack stack) {
+            PriceEntry match = customMatch(stack);
+            return match != null ? match : plain;
+        }
+
+        @Nullable
+        PriceEntry customMatch(ItemStack stack) {
+            if (custom.isEmpty()) return null;
+            PriceEntry[] bucket = custom.get(componentHash(stack));
+            if (bucket == null) return null;
+            for (PriceEntry p : bucket) {
+                if (ItemStack.isSameItemSameComponents(stack, p.customItem())) return p;
+            }
+            return null;
+        }
+
+        int comparisons(ItemStack stack) {
+            PriceEntry[] bucket = custom.get(componentHash(stack));
+            if (bucket == null) return 0;
+            for (int i = 0; i < bucket.length; i++) {
+                if (ItemStack.isSameItemSameComponents(stack, bucket[i].customItem())) return i + 1;
+            }
+            return bucket.length;
+        }
+
+        private static int componentHash(ItemStack stack) {
+            return stack.getComponents().hashCode();
+        }
+    }
+}
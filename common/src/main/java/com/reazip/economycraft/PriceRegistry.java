@@ -3,70 +3,150 @@ package com.reazip.economycraft;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.mojang.logging.LogUtils;
 import com.mojang.serialization.JsonOps;
 import net.minecraft.core.registries.BuiltInRegistries;
+import com.reazip.economycraft.util.AsyncFileWriter;
+import com.reazip.economycraft.util.BundledDefaults;
 import com.reazip.economycraft.util.EconomyPaths;
 import com.reazip.economycraft.util.IdentifierCompat;
-import com.reazip.economycraft.util.MenuUiSupport;
+import com.reazip.economycraft.util.PersistenceScheduler;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.resources.RegistryOps;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
-import net.minecraft.core.Holder;
 import net.minecraft.core.component.DataComponentPatch;
 import net.minecraft.core.component.DataComponents;
-import net.minecraft.world.item.Items;
 import net.minecraft.world.item.component.BundleContents;
 import net.minecraft.world.item.component.ItemContainerContents;
-import net.minecraft.world.item.alchemy.Potion;
-import net.minecraft.world.item.alchemy.PotionContents;
-import it.unimi.dsi.fastutil.objects.Object2IntMap;
-import net.minecraft.world.item.enchantment.Enchantment;
-import net.minecraft.world.item.enchantment.ItemEnchantments;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.function.Predicate;
+import java.util.concurrent.CompletableFuture;
 
-public final class PriceRegistry {
+public final class PriceRegistry implements PersistenceScheduler.Persistable {
     private static final Logger LOGGER = LogUtils.getLogger();
     private static final String DEFAULT_RESOURCE_PATH = "/assets/economycraft/prices.json";
+    private static final String FILE_NAME = "prices.json";
     private static final Gson GSON = new GsonBuilder()
             .setPrettyPrinting()
             .create();
     private final Path file;
     private final HolderLookup.Provider registryAccess;
-    private final Map<IdentifierCompat.Id, List<PriceEntry>> prices = new LinkedHashMap<>();
+    @Nullable
+    private final BundledDefaults defaults;
+    private final Set<String> fileKeys = new HashSet<>();
+    private final Map<String, JsonElement> pendingEdits = new LinkedHashMap<>();
+    private final List<Map.Entry<String, JsonElement>> replay = new ArrayList<>();
+    private final Map<String, JsonElement> unindexed = new LinkedHashMap<>();
+    private final List<CompletableFuture<Boolean>> unsaved = new ArrayList<>();
+    @Nullable
+    private CompletableFuture<Boolean> indexing;
+    private int reloadsInFlight;
+    private volatile PriceIndex index;
+    private volatile JsonObject savedRoot;
 
     public PriceRegistry(MinecraftServer server) {
-        this.file = EconomyPaths.configDir(server).resolve("prices.json");
+        this.file = EconomyPaths.configDir(server).resolve(FILE_NAME);
         this.registryAccess = server.registryAccess();
 
+        this.defaults = bundledDefaults();
+        Path dataDir = EconomyPaths.dataDir(server);
+
         if (Files.notExists(this.file)) {
             createFromBundledDefault();
-        } else {
-            mergeNewDefaultsFromBundledDefault();
+            if (defaults != null) defaults.markMergedInto(dataDir, FILE_NAME);
+        } else if (defaults == null || !defaults.isMergedInto(dataDir, FILE_NAME)) {
+            if (mergeNewDefaultsFromBundledDefault()) defaults.markMergedInto(dataDir, FILE_NAME);
+        }
+
+        Loaded loaded = load();
+        if (loaded.root() == null && Files.exists(file)) {
+            backupBrokenConfig();
+            createFromBundledDefault();
+            loaded = load();
+        }
+        this.fileKeys.addAll(loaded.keys());
+        this.savedRoot = loaded.root();
+        this.index = new PriceIndex(loaded.prices(), registryAccess);
+    }
+
+    public CompletableFuture<ReloadResult> reload() {
+        synchronized (this) {
+            reloadsInFlight++;
         }
+        PersistenceScheduler.saveNow(this);
+        return PersistenceScheduler.afterSaves(() -> {
+            Map<String, JsonElement> changes = null;
+            try {
+                AsyncFileWriter.flush();
+                JsonObject root = readUserJson();
+                if (root != null) {
+                    changes = diff(savedRoot, root);
+                    savedRoot = root;
+                }
+            } catch (Exception ex) {
+                LOGGER.error("[EconomyCraft] Failed to reload prices.json from {}", file, ex);
+            }
+            return publish(changes);
+        });
+    }
 
-        reload();
+    private static Map<String, JsonElement> diff(@Nullable JsonObject before, JsonObject after) {
+        Map<String, JsonElement> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> e : after.entrySet()) {
+            JsonElement old = before == null ? null : before.get(e.getKey());
+            if (!e.getValue().equals(old)) changes.put(e.getKey(), e.getValue());
+        }
+        if (before != null) {
+            for (String key : before.keySet()) {
+                if (!after.has(key)) changes.put(key, JsonNull.INSTANCE);
+            }
+        }
+        return changes;
     }
 
-    public void reload() {
-        this.prices.clear();
+    private synchronized ReloadResult publish(@Nullable Map<String, JsonElement> changes) {
+        reloadsInFlight--;
+        ReloadResult result = ReloadResult.NONE;
+        if (changes != null) {
+            for (Map.Entry<String, JsonElement> e : replay) {
+                changes.remove(e.getKey());
+            }
+            int added = 0;
+            int removed = 0;
+            for (Map.Entry<String, JsonElement> e : changes.entrySet()) {
+                if (e.getValue().isJsonNull()) {
+                    removed++;
+                } else if (!fileKeys.contains(e.getKey())) {
+                    added++;
+                }
+            }
+            result = new ReloadResult(added, changes.size() - added - removed, removed);
+            for (Map.Entry<String, JsonElement> e : changes.entrySet()) {
+                trackKey(e.getKey(), e.getValue());
+            }
+            if (!changes.isEmpty()) index = apply(index, changes);
+        }
+        if (reloadsInFlight == 0) replay.clear();
+        return result;
+    }
 
+    private Loaded load() {
+        Map<IdentifierCompat.Id, List<PriceEntry>> prices = new LinkedHashMap<>();
+        Set<String> keys = new HashSet<>();
         if (Files.notExists(file)) {
             LOGGER.warn("[EconomyCraft] prices.json not found at {} (prices map will be empty).", file);
-            return;
+            return new Loaded(null, prices, keys);
         }
 
         try {
@@ -74,96 +154,99 @@ public final class PriceRegistry {
             JsonObject root = GSON.fromJson(json, JsonObject.class);
             if (root == null) {
                 LOGGER.error("[EconomyCraft] prices.json is empty or invalid JSON: {}", file);
-                return;
+                return new Loaded(null, prices, keys);
             }
 
             int entryCount = 0;
-            int invalidCustomItemCount = 0;
-            List<String> missingItems = new ArrayList<>();
+            LoadStats stats = new LoadStats();
             for (Map.Entry<String, JsonElement> e : root.entrySet()) {
-                String key = e.getKey();
-                String baseKeyStr = key;
-                int hashIdx = key.indexOf('#');
-                if (hashIdx >= 0) {
-                    baseKeyStr = key.substring(0, hashIdx);
-                }
+                keys.add(e.getKey());
+                PriceEntry entry = parseEntry(e.getKey(), e.getValue(), stats);
+                if (entry == null) continue;
+                prices.computeIfAbsent(entry.id(), k -> new ArrayList<>()).add(entry);
+                entryCount++;
+            }
 
-                IdentifierCompat.Id id = IdentifierCompat.tryParse(baseKeyStr);
-                if (id == null) {
-                    LOGGER.warn("[EconomyCraft] Invalid item id in prices.json: {}", key);
-                    continue;
-                }
+            logSkipped(stats);
+            LOGGER.info("[EconomyCraft] Loaded {} price entries from {}", entryCount, file);
+            return new Loaded(root, prices, keys);
+        } catch (Exception ex) {
+            LOGGER.error("[EconomyCraft] Failed to load prices.json from {}", file, ex);
+            return new Loaded(null, new LinkedHashMap<>(), new HashSet<>());
+        }
+    }
 
-                JsonElement el = e.getValue();
-                if (el == null || !el.isJsonObject()) {
-                    LOGGER.warn("[EconomyCraft] Invalid entry for {} (expected object).", key);
-                    continue;
-                }
-                JsonObject obj = el.getAsJsonObject();
+    private static void logSkipped(LoadStats stats) {
+        List<String> missingItems = stats.missingItems;
+        if (!missingItems.isEmpty()) {
+            List<String> shown = missingItems.size() > 10 ? missingItems.subList(0, 10) : missingItems;
+            String more = missingItems.size() > shown.size() ? " and " + (missingItems.size() - shown.size()) + " more" : "";
+            LOGGER.warn("[EconomyCraft] Skipped {} price entries whose item is not present on this server: {}{}",
+                    missingItems.size(), String.join(", ", shown), more);
+        }
+        if (stats.invalidCustomItems > 0) {
+            LOGGER.warn("[EconomyCraft] Skipped {} price entries with an invalid 'components' payload.", stats.invalidCustomItems);
+        }
+    }
 
-                if (isRemoved(obj)) continue;
+    @Nullable
+    private PriceEntry parseEntry(String key, JsonElement el, LoadStats stats) {
+        String baseKeyStr = key;
+        int hashIdx = key.indexOf('#');
+        if (hashIdx >= 0) {
+            baseKeyStr = key.substring(0, hashIdx);
+        }
 
-                boolean isRealItem = IdentifierCompat.registryContainsKey(BuiltInRegistries.ITEM, id);
-                boolean isVirtual = isVirtualPriceId(id);
-                if (!isRealItem && !isVirtual) {
-                    missingItems.add(key);
-                    continue;
-                }
+        IdentifierCompat.Id id = IdentifierCompat.tryParse(baseKeyStr);
+        if (id == null) {
+            LOGGER.warn("[EconomyCraft] Invalid item id in prices.json: {}", key);
+            return null;
+        }
 
-                ItemStack customItem = null;
-                if (obj.has("components")) {
-                    if (!isRealItem) {
-                        LOGGER.warn("[EconomyCraft] Price entry '{}' has 'components' but '{}' is not a real item; skipping.", key, id.asString());
-                        invalidCustomItemCount++;
-                        continue;
-                    }
-                    customItem = decodeComponents(key, id, obj.get("components"));
-                    if (customItem == null || customItem.isEmpty()) {
-                        invalidCustomItemCount++;
-                        continue;
-                    }
-                }
+        if (el == null || !el.isJsonObject()) {
+            LOGGER.warn("[EconomyCraft] Invalid entry for {} (expected object).", key);
+            return null;
+        }
+        JsonObject obj = el.getAsJsonObject();
 
-                String category = getString(obj);
-                int stack = getInt(obj);
-                long unitBuy = getLong(obj, "unit_buy");
-                long unitSell = getLong(obj, "unit_sell");
+        if (isRemoved(obj)) return null;
 
-                PriceEntry entry = new PriceEntry(key, id, category, stack, unitBuy, unitSell, customItem);
-                prices.computeIfAbsent(id, k -> new ArrayList<>()).add(entry);
-                entryCount++;
-            }
+        boolean isRealItem = IdentifierCompat.registryContainsKey(BuiltInRegistries.ITEM, id);
+        boolean isVirtual = isVirtualPriceId(id);
+        if (!isRealItem && !isVirtual) {
+            stats.missingItems.add(key);
+            return null;
+        }
 
-            if (!missingItems.isEmpty()) {
-                List<String> shown = missingItems.size() > 10 ? missingItems.subList(0, 10) : missingItems;
-                String more = missingItems.size() > shown.size() ? " and " + (missingItems.size() - shown.size()) + " more" : "";
-                LOGGER.warn("[EconomyCraft] Skipped {} price entries whose item is not present on this server: {}{}",
-                        missingItems.size(), String.join(", ", shown), more);
+        ItemStack customItem = null;
+        if (obj.has("components")) {
+            if (!isRealItem) {
+                LOGGER.warn("[EconomyCraft] Price entry '{}' has 'components' but '{}' is not a real item; skipping.", key, id.asString());
+                stats.invalidCustomItems++;
+                return null;
             }
-            if (invalidCustomItemCount > 0) {
-                LOGGER.warn("[EconomyCraft] Skipped {} price entries with an invalid 'components' payload.", invalidCustomItemCount);
+            customItem = decodeComponents(key, id, obj.get("components"));
+            if (customItem == null || customItem.isEmpty()) {
+                stats.invalidCustomItems++;
+                return null;
             }
-
-            LOGGER.info("[EconomyCraft] Loaded {} price entries from {}", entryCount, file);
-        } catch (Exception ex) {
-            LOGGER.error("[EconomyCraft] Failed to load prices.json from {}", file, ex);
         }
+
+        String category = getString(obj);
+        int stack = getInt(obj);
+        long unitBuy = getLong(obj, "unit_buy");
+        long unitSell = getLong(obj, "unit_sell");
+
+        return new PriceEntry(key, id, category, stack, unitBuy, unitSell, customItem);
+    }
+
+    public long revision() {
+        return index.revision;
     }
 
     public PriceEntry resolve(ItemStack stack) {
         if (stack == null || stack.isEmpty()) return null;
-
-        for (IdentifierCompat.Id key : resolvePriceKeys(stack)) {
-            List<PriceEntry> candidates = prices.get(key);
-            if (candidates == null) continue;
-
-            PriceEntry custom = findCustomMatch(candidates, stack);
-            if (custom != null) return custom;
-            for (PriceEntry p : candidates) {
-                if (p.customItem() == null) return p;
-            }
-        }
-        return null;
+        return index.resolve(stack);
     }
 
     public boolean matches(ItemStack stack, PriceEntry expected) {
@@ -171,20 +254,7 @@ public final class PriceRegistry {
         if (expected.customItem() != null) {
             return ItemStack.isSameItemSameComponents(stack, expected.customItem());
         }
-        for (IdentifierCompat.Id key : resolvePriceKeys(stack)) {
-            if (!key.equals(expected.id())) continue;
-            List<PriceEntry> candidates = prices.get(key);
-            return candidates != null && findCustomMatch(candidates, stack) == null;
-        }
-        return false;
-    }
-
-    @Nullable
-    private static PriceEntry findCustomMatch(List<PriceEntry> candidates, ItemStack stack) {
-        for (PriceEntry p : candidates) {
-            if (p.customItem() != null && ItemStack.isSameItemSameComponents(stack, p.customItem())) return p;
-        }
-        return null;
+        return index.matchesPlain(stack, expected.id());
     }
 
     private ItemStack decodeComponents(String key, IdentifierCompat.Id id, JsonElement el) {
@@ -223,168 +293,214 @@ public final class PriceRegistry {
         return bundle != null && !bundle.isEmpty();
     }
 
-    private static final Predicate<PriceEntry> BUYABLE = p -> p.unitBuy() > 0;
-    private static final Predicate<PriceEntry> ANY = p -> true;
-
     public Set<String> buyCategories() {
-        Set<String> out = new LinkedHashSet<>();
-        for (PriceEntry p : entries(BUYABLE)) {
-            out.add(p.category());
-        }
-        return out;
+        return index.buyable.categories;
     }
 
     public List<PriceEntry> buyableByCategory(String category) {
-        return byCategory(category, BUYABLE);
+        return byCategory(index.buyable, category);
     }
 
     public List<PriceEntry> search(String query, @Nullable String category) {
-        return search(query, category, BUYABLE);
+        return search(index, true, query, category);
     }
 
     public List<String> buyTopCategories() {
-        return topCategories(BUYABLE);
+        return index.buyable.topCategories;
     }
 
     public List<String> buySubcategories(String topCategory) {
-        return subcategories(topCategory, BUYABLE);
+        return subcategories(index.buyable, topCategory);
     }
 
     public List<PriceEntry> allEntries() {
-        return entries(ANY);
+        return index.all.entries;
     }
 
     public List<PriceEntry> allByCategory(String category) {
-        return byCategory(category, ANY);
+        return byCategory(index.all, category);
     }
 
     public List<String> allTopCategories() {
-        return topCategories(ANY);
+        return index.all.topCategories;
     }
 
     public List<String> allSubcategories(String topCategory) {
-        return subcategories(topCategory, ANY);
+        return subcategories(index.all, topCategory);
     }
 
     public List<PriceEntry> searchAll(String query) {
-        return search(query, null, ANY);
+        return search(index, false, query, null);
     }
 
     public List<PriceEntry> searchAll(String query, @Nullable String category) {
-        return search(query, category, ANY);
+        return search(index, false, query, category);
     }
 
     @Nullable
     public PriceEntry findByKey(String key) {
         if (key == null) return null;
-        for (PriceEntry p : entries(ANY)) {
-            if (key.equals(p.key())) return p;
-        }
-        return null;
+        return index.byKey(key);
     }
 
-    private List<PriceEntry> entries(Predicate<PriceEntry> keep) {
-        List<PriceEntry> out = new ArrayList<>();
-        for (List<PriceEntry> list : prices.values()) {
-            for (PriceEntry p : list) {
-                if (keep.test(p)) out.add(p);
-            }
-        }
-        return out;
+    private static List<PriceEntry> byCategory(PriceIndex.CategoryView view, String category) {
+        if (category == null) return List.of();
+        return view.byCategory(PriceIndex.normalizeCategory(category));
     }
 
-    private List<PriceEntry> byCategory(String category, Predicate<PriceEntry> keep) {
-        if (category == null) return List.of();
-        String c = category.trim().toLowerCase(Locale.ROOT);
+    private static List<PriceEntry> search(PriceIndex snapshot, boolean buyableOnly, String query, @Nullable String category) {
+        if (query == null || query.isBlank()) return List.of();
+        String c = category != null ? PriceIndex.normalizeCategory(category) : null;
+        return snapshot.search.find(query, p -> (!buyableOnly || p.unitBuy() > 0)
+                && (c == null || (p.category() != null && PriceIndex.normalizeCategory(p.category()).equals(c))));
+    }
 
-        List<PriceEntry> out = new ArrayList<>();
-        for (PriceEntry p : entries(keep)) {
-            if (matchesCategory(p, c)) out.add(p);
-        }
-        return out;
+    private static List<String> subcategories(PriceIndex.CategoryView view, String topCategory) {
+        if (topCategory == null || topCategory.isBlank()) return List.of();
+        return view.subcategories(PriceIndex.normalizeCategory(topCategory));
     }
 
-    private List<PriceEntry> search(String query, @Nullable String category, Predicate<PriceEntry> keep) {
-        if (query == null || query.isBlank()) return List.of();
-        String q = query.trim().toLowerCase(Locale.ROOT);
-        String c = category != null ? category.trim().toLowerCase(Locale.ROOT) : null;
-
-        List<PriceEntry> out = new ArrayList<>();
-        for (PriceEntry p : entries(keep)) {
-            if (c != null && !matchesCategory(p, c)) continue;
-            String name = p.id().path().replace('_', ' ').toLowerCase(Locale.ROOT);
-            if (name.contains(q)
-                    || (p.category() != null && p.category().toLowerCase(Locale.ROOT).contains(q))
-                    || (p.customItem() != null && MenuUiSupport.matchesSearch(p.customItem(), query))) {
-                out.add(p);
-            }
-        }
-        return out;
+    public synchronized CompletableFuture<Boolean> upsert(String key, String category, int stack, long unitBuy, long unitSell,
+                                                          @Nullable ItemStack customItem) {
+        if (key == null || key.isBlank()) return CompletableFuture.completedFuture(false);
+        JsonObject obj = new JsonObject();
+        obj.addProperty("category", category == null || category.isBlank() ? "misc" : category.trim());
+        obj.addProperty("stack", Math.max(1, stack));
+        obj.addProperty("unit_buy", Math.max(0, unitBuy));
+        obj.addProperty("unit_sell", Math.max(0, unitSell));
+        JsonElement components = customItem == null ? null : encodeComponents(key, customItem);
+        if (components != null) obj.add("components", components);
+        return edit(key, obj);
     }
 
-    private static boolean matchesCategory(PriceEntry p, String normalizedCategory) {
-        return p.category() != null && p.category().trim().toLowerCase(Locale.ROOT).equals(normalizedCategory);
+    public synchronized CompletableFuture<Boolean> delete(String key) {
+        if (key == null || key.isBlank()) return CompletableFuture.completedFuture(false);
+        if (isBundledDefaultKey(key)) {
+            JsonObject tombstone = new JsonObject();
+            tombstone.addProperty("removed", true);
+            return edit(key, tombstone);
+        }
+        return edit(key, JsonNull.INSTANCE);
     }
 
-    private List<String> topCategories(Predicate<PriceEntry> keep) {
-        LinkedHashSet<String> out = new LinkedHashSet<>();
-        for (PriceEntry p : entries(keep)) {
-            if (p.category() == null) continue;
-            String cat = p.category();
-            int dot = cat.indexOf('.');
-            out.add(dot > 0 ? cat.substring(0, dot) : cat);
+    public synchronized boolean keyExists(String key) {
+        if (key == null || key.isBlank()) return false;
+        return fileKeys.contains(key);
+    }
+
+    private CompletableFuture<Boolean> edit(String key, JsonElement value) {
+        trackKey(key, value);
+        if (reloadsInFlight > 0) replay.add(Map.entry(key, value));
+        pendingEdits.remove(key);
+        pendingEdits.put(key, value);
+        PersistenceScheduler.markDirty(this);
+        CompletableFuture<Boolean> saved = new CompletableFuture<>();
+        unsaved.add(saved);
+        unindexed.remove(key);
+        unindexed.put(key, value);
+        if (indexing == null) indexing = PersistenceScheduler.afterSaves(this::indexEdits);
+        return indexing.thenCombine(saved, (indexed, written) -> written);
+    }
+
+    private boolean indexEdits() {
+        Map<String, JsonElement> changes;
+        synchronized (this) {
+            changes = new LinkedHashMap<>(unindexed);
+            unindexed.clear();
+            indexing = null;
+        }
+        try {
+            index = apply(index, changes);
+            return true;
+        } catch (Exception ex) {
+            LOGGER.error("[EconomyCraft] Failed to index {} price edits", changes.size(), ex);
+            return false;
         }
-        return new ArrayList<>(out);
     }
 
-    private List<String> subcategories(String topCategory, Predicate<PriceEntry> keep) {
-        if (topCategory == null || topCategory.isBlank()) return List.of();
-        String root = topCategory.trim().toLowerCase(Locale.ROOT);
-        LinkedHashSet<String> out = new LinkedHashSet<>();
-        for (PriceEntry p : entries(keep)) {
-            if (p.category() == null) continue;
-            String cat = p.category().trim();
-            int dot = cat.indexOf('.');
-            if (dot <= 0 || dot >= cat.length() - 1) continue;
-            if (cat.substring(0, dot).toLowerCase(Locale.ROOT).equals(root)) {
-                out.add(cat.substring(dot + 1));
+    private void trackKey(String key, JsonElement value) {
+        if (value.isJsonNull()) {
+            fileKeys.remove(key);
+        } else {
+            fileKeys.add(key);
+        }
+    }
+
+    private PriceIndex apply(PriceIndex base, Map<String, JsonElement> changes) {
+        Map<IdentifierCompat.Id, List<PriceEntry>> next = new LinkedHashMap<>(base.prices);
+        Map<IdentifierCompat.Id, List<PriceEntry>> copied = new HashMap<>();
+        LoadStats stats = new LoadStats();
+        for (Map.Entry<String, JsonElement> change : changes.entrySet()) {
+            String key = change.getKey();
+            JsonElement value = change.getValue();
+            PriceEntry replaced = base.byKey(key);
+            PriceEntry entry = value.isJsonNull() ? null : parseEntry(key, value, stats);
+            if (replaced != null) {
+                List<PriceEntry> list = writable(next, copied, replaced.id());
+                int at = list.indexOf(replaced);
+                if (entry != null && entry.id().equals(replaced.id())) {
+                    list.set(at, entry);
+                    entry = null;
+                } else {
+                    list.remove(at);
+                }
             }
+            if (entry != null) writable(next, copied, entry.id()).add(entry);
         }
-        return new ArrayList<>(out);
+        next.values().removeIf(List::isEmpty);
+        logSkipped(stats);
+        return new PriceIndex(next, registryAccess);
     }
 
-    public synchronized boolean upsert(String key, String category, int stack, long unitBuy, long unitSell,
-                                       @Nullable ItemStack customItem) {
-        if (key == null || key.isBlank()) return false;
-        return mutate(root -> {
-            JsonObject obj = new JsonObject();
-            obj.addProperty("category", category == null || category.isBlank() ? "misc" : category.trim());
-            obj.addProperty("stack", Math.max(1, stack));
-            obj.addProperty("unit_buy", Math.max(0, unitBuy));
-            obj.addProperty("unit_sell", Math.max(0, unitSell));
-            JsonElement components = customItem == null ? null : encodeComponents(key, customItem);
-            if (components != null) obj.add("components", components);
-            root.add(key, obj);
+    private static List<PriceEntry> writable(Map<IdentifierCompat.Id, List<PriceEntry>> next,
+                                             Map<IdentifierCompat.Id, List<PriceEntry>> copied, IdentifierCompat.Id id) {
+        return copied.computeIfAbsent(id, k -> {
+            List<PriceEntry> list = new ArrayList<>(next.getOrDefault(k, List.of()));
+            next.put(k, list);
+            return list;
         });
     }
 
-    public synchronized boolean delete(String key) {
-        if (key == null || key.isBlank()) return false;
-        return mutate(root -> {
-            if (isBundledDefaultKey(key)) {
-                JsonObject tombstone = new JsonObject();
-                tombstone.addProperty("removed", true);
-                root.add(key, tombstone);
-            } else {
-                root.remove(key);
+    @Override
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public synchronized PersistenceScheduler.Encoder snapshot() {
+        Map<String, JsonElement> edits = new LinkedHashMap<>(pendingEdits);
+        List<CompletableFuture<Boolean>> saved = new ArrayList<>(unsaved);
+        pendingEdits.clear();
+        unsaved.clear();
+        return new PersistenceScheduler.Encoder() {
+            @Override
+            public String encode() {
+                AsyncFileWriter.flush();
+                JsonObject indexed = savedRoot;
+                JsonObject root = readUserJson();
+                if (root == null) root = indexed != null ? indexed.deepCopy() : new JsonObject();
+                applyEdits(root, edits);
+                if (indexed != null) applyEdits(indexed, edits);
+                return GSON.toJson(root);
             }
-        });
+
+            @Override
+            public void written(boolean ok) {
+                for (CompletableFuture<Boolean> future : saved) {
+                    future.complete(ok);
+                }
+            }
+        };
     }
 
-    public synchronized boolean keyExists(String key) {
-        if (key == null || key.isBlank()) return false;
-        JsonObject root = readUserJson();
-        return root != null && root.has(key);
+    private static void applyEdits(JsonObject root, Map<String, JsonElement> edits) {
+        for (Map.Entry<String, JsonElement> e : edits.entrySet()) {
+            if (e.getValue().isJsonNull()) {
+                root.remove(e.getKey());
+            } else {
+                root.add(e.getKey(), e.getValue());
+            }
+        }
     }
 
     public String uniqueKeyFor(IdentifierCompat.Id id, @Nullable String label) {
@@ -403,24 +519,9 @@ public final class PriceRegistry {
     }
 
     private boolean isBundledDefaultKey(String key) {
-        JsonObject defaults = readBundledDefaultJson();
         return defaults != null && defaults.has(key);
     }
 
-    private boolean mutate(java.util.function.Consumer<JsonObject> edit) {
-        JsonObject root = readUserJson();
-        if (root == null) root = new JsonObject();
-        edit.accept(root);
-        try {
-            Files.writeString(file, GSON.toJson(root), StandardCharsets.UTF_8);
-        } catch (IOException ex) {
-            LOGGER.error("[EconomyCraft] Failed to write prices.json at {}", file, ex);
-            return false;
-        }
-        reload();
-        return true;
-    }
-
     @Nullable
     private JsonObject readUserJson() {
         if (Files.notExists(file)) return new JsonObject();
@@ -456,15 +557,15 @@ public final class PriceRegistry {
     }
 
     private void createFromBundledDefault() {
-        try (InputStream in = PriceRegistry.class.getResourceAsStream(DEFAULT_RESOURCE_PATH)) {
-            if (in == null) {
+        try {
+            if (defaults == null) {
                 LOGGER.error("[EconomyCraft] Default prices resource not found at {}. Creating empty {}",
                         DEFAULT_RESOURCE_PATH, file);
                 Files.writeString(file, "{}", StandardCharsets.UTF_8);
                 return;
             }
 
-            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            Files.writeString(file, defaults.json(), StandardCharsets.UTF_8);
             LOGGER.info("[EconomyCraft] Created {} from bundled default {}", file, DEFAULT_RESOURCE_PATH);
         } catch (IOException e) {
             LOGGER.error("[EconomyCraft] Failed to create prices.json at {}", file, e);
@@ -482,11 +583,10 @@ public final class PriceRegistry {
             "minecraft:arrow_of_infestation_1"
     );
 
-    private void mergeNewDefaultsFromBundledDefault() {
-        JsonObject defaults = readBundledDefaultJson();
+    private boolean mergeNewDefaultsFromBundledDefault() {
         if (defaults == null) {
             LOGGER.warn("[EconomyCraft] No bundled defaults found; skipping merge.");
-            return;
+            return false;
         }
 
         JsonObject userRoot;
@@ -497,7 +597,7 @@ public final class PriceRegistry {
         } catch (Exception ex) {
             backupBrokenConfig();
             createFromBundledDefault();
-            return;
+            return true;
         }
 
         String before = GSON.toJson(userRoot);
@@ -509,9 +609,7 @@ public final class PriceRegistry {
 
         JsonObject merged = new JsonObject();
         int added = 0;
-        for (Map.Entry<String, JsonElement> e : defaults.entrySet()) {
-            String key = e.getKey();
-
+        for (String key : defaults.keys()) {
             if (IdentifierCompat.tryParse(key) == null) {
                 LOGGER.warn("[EconomyCraft] Bundled default contains invalid key '{}', skipping.", key);
                 continue;
@@ -520,8 +618,7 @@ public final class PriceRegistry {
             if (userRoot.has(key)) {
                 merged.add(key, userRoot.get(key));
             } else {
-                JsonElement value = e.getValue();
-                merged.add(key, value == null ? null : value.deepCopy());
+                merged.add(key, defaults.copyOf(key));
                 added++;
             }
         }
@@ -539,18 +636,16 @@ public final class PriceRegistry {
                 LOGGER.info("[EconomyCraft] prices.json synced with bundled defaults ({} added, {} legacy removed).", added, removed);
             } catch (IOException ex) {
                 LOGGER.error("[EconomyCraft] Failed to write merged prices.json at {}", file, ex);
+                return false;
             }
         }
+        return true;
     }
 
-    private JsonObject readBundledDefaultJson() {
-        try (InputStream in = PriceRegistry.class.getResourceAsStream(DEFAULT_RESOURCE_PATH)) {
-            if (in == null) return null;
-
-            byte[] bytes = in.readAllBytes();
-            String json = new String(bytes, StandardCharsets.UTF_8);
-            return GSON.fromJson(json, JsonObject.class);
-
+    @Nullable
+    private static BundledDefaults bundledDefaults() {
+        try {
+            return BundledDefaults.of(DEFAULT_RESOURCE_PATH);
         } catch (Exception ex) {
             LOGGER.error("[EconomyCraft] Failed to read bundled default prices.json from {}", DEFAULT_RESOURCE_PATH, ex);
             return null;
@@ -601,115 +696,6 @@ public final class PriceRegistry {
         }
     }
 
-    private static List<IdentifierCompat.Id> resolvePriceKeys(ItemStack stack) {
-        List<IdentifierCompat.Id> out = new ArrayList<>(4);
-
-        IdentifierCompat.Id itemId = IdentifierCompat.wrap(BuiltInRegistries.ITEM.getKey(stack.getItem()));
-
-        if (stack.is(Items.POTION) || stack.is(Items.SPLASH_POTION) || stack.is(Items.LINGERING_POTION) || stack.is(Items.TIPPED_ARROW)) {
-            IdentifierCompat.Id potionId = readPotionId(stack);
-            if (potionId == null) potionId = IdentifierCompat.withDefaultNamespace("water");
-
-            out.addAll(buildVirtualPotionKeys(stack, potionId));
-        }
-
-        if (stack.is(Items.ENCHANTED_BOOK)) {
-            ItemEnchantments stored = stack.getOrDefault(DataComponents.STORED_ENCHANTMENTS, ItemEnchantments.EMPTY);
-            for (Object2IntMap.Entry<Holder<Enchantment>> e : stored.entrySet()) {
-                Holder<Enchantment> holder = e.getKey();
-                int level = e.getIntValue();
-                if (level <= 0) continue;
-                IdentifierCompat.Id enchId = holder.unwrapKey().map(IdentifierCompat::fromResourceKey).orElse(null);
-                if (enchId == null) continue;
-                String base = "enchanted_book_" + enchId.path() + "_" + level;
-                IdentifierCompat.Id key = IdentifierCompat.fromNamespaceAndPath(enchId.namespace(), base);
-                out.add(key);
-
-                if ("binding_curse".equals(enchId.path())) {
-                    out.add(IdentifierCompat.fromNamespaceAndPath(enchId.namespace(), "enchanted_book_curse_of_binding_" + level));
-                } else if ("vanishing_curse".equals(enchId.path())) {
-                    out.add(IdentifierCompat.fromNamespaceAndPath(enchId.namespace(), "enchanted_book_curse_of_vanishing_" + level));
-                }
-            }
-        }
-
-        out.add(itemId);
-        return out;
-    }
-
-    private static IdentifierCompat.Id readPotionId(ItemStack stack) {
-        PotionContents contents = stack.get(DataComponents.POTION_CONTENTS);
-        if (contents == null) return null;
-
-        Optional<Holder<Potion>> opt = contents.potion();
-        if (opt.isEmpty()) return null;
-
-        Potion potion = opt.get().value();
-        return IdentifierCompat.wrap(BuiltInRegistries.POTION.getKey(potion));
-    }
-
-    private static List<IdentifierCompat.Id> buildVirtualPotionKeys(ItemStack stack, IdentifierCompat.Id potionId) {
-        String potionPath = potionId.path();
-        String form;
-        if (stack.is(Items.SPLASH_POTION)) form = "splash";
-        else if (stack.is(Items.LINGERING_POTION)) form = "lingering";
-        else if (stack.is(Items.TIPPED_ARROW)) form = "arrow";
-        else form = "potion";
-
-        if (potionPath.equals("water")) {
-            String key = switch (form) {
-                case "splash" -> "splash_water_bottle";
-                case "lingering" -> "lingering_water_bottle";
-                case "potion" -> "water_bottle";
-                case "arrow" -> "arrow_of_water_1";
-                default -> "water_bottle";
-            };
-            return List.of(IdentifierCompat.withDefaultNamespace(key));
-        }
-
-        if (potionPath.equals("awkward") || potionPath.equals("mundane") || potionPath.equals("thick")) {
-            String key = switch (form) {
-                case "potion" -> potionPath + "_potion";
-                case "splash" -> potionPath + "_splash_potion";
-                case "lingering" -> potionPath + "_lingering_potion";
-                case "arrow" -> "arrow_of_" + potionPath + "_1";
-                default -> potionPath + "_potion";
-            };
-            return List.of(IdentifierCompat.withDefaultNamespace(key));
-        }
-
-        String effect = potionPath;
-        String suffix = "_1";
-        if (effect.startsWith("long_")) {
-            effect = effect.substring("long_".length());
-            suffix = "_extended";
-        } else if (effect.startsWith("strong_")) {
-            effect = effect.substring("strong_".length());
-            suffix = "_2";
-        }
-
-        if (effect.equals("turtle_master")) {
-            effect = "the_turtle_master";
-        }
-
-        String base = switch (form) {
-            case "potion" -> "potion_of_" + effect;
-            case "splash" -> "splash_potion_of_" + effect;
-            case "lingering" -> "lingering_potion_of_" + effect;
-            case "arrow" -> "arrow_of_" + effect;
-            default -> "potion_of_" + effect;
-        };
-
-        if (suffix.equals("_1")) {
-            return List.of(
-                    IdentifierCompat.withDefaultNamespace(base + "_1"),
-                    IdentifierCompat.withDefaultNamespace(base)
-            );
-        } else {
-            return List.of(IdentifierCompat.withDefaultNamespace(base + suffix));
-        }
-    }
-
     private static String getString(JsonObject obj) {
         if (obj.has("category") && obj.get("category").isJsonPrimitive() && obj.get("category").getAsJsonPrimitive().isString()) {
             return obj.get("category").getAsString();
@@ -744,4 +730,20 @@ public final class PriceRegistry {
             long unitSell,
             ItemStack customItem
     ) { }
+
+    public record ReloadResult(int added, int changed, int removed) {
+        static final ReloadResult NONE = new ReloadResult(0, 0, 0);
+
+        public boolean isEmpty() {
+            return added == 0 && changed == 0 && removed == 0;
+        }
+    }
+
+    private record Loaded(@Nullable JsonObject root, Map<IdentifierCompat.Id, List<PriceEntry>> prices, Set<String> keys) {
+    }
+
+    private static final class LoadStats {
+        final List<String> missingItems = new ArrayList<>();
+        int invalidCustomItems;
+    }
 }
@@ -0,0 +1,223 @@
+package com.reazip.economycraft;
+
+import com.reazip.economycraft.PriceRegistry.PriceEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+final class PriceSearch {
+    private static final int NAME = 3;
+    private static final int ID = 2;
+    private static final int CATEGORY = 1;
+
+    private static final int EXACT = 8;
+    private static final int PREFIX = 6;
+    private static final int SUBSTRING = 3;
+    private static final int FUZZY = 2;
+
+    private static final int MAX_FUZZY_LENGTH = 32;
+    private static final int[] NO_TERMS = new int[0];
+
+    private final List<PriceEntry> entries;
+    private final String[] terms;
+    private final int[][] postings;
+    private final byte[][] weights;
+    private final Map<String, int[]> trigrams;
+
+    PriceSearch(List<PriceEntry> entries, Function<PriceEntry, List<String>> names) {
+        this.entries = entries;
+
+        TreeMap<String, LinkedHashMap<Integer, Integer>> index = new TreeMap<>();
+        for (int e = 0; e < entries.size(); e++) {
+            PriceEntry p = entries.get(e);
+            for (String name : names.apply(p)) {
+                addTokens(index, name, e, NAME);
+            }
+            addTokens(index, p.id().path(), e, ID);
+            if (p.category() != null) addTokens(index, p.category(), e, CATEGORY);
+        }
+
+        this.terms = index.keySet().toArray(new String[0]);
+        this.postings = new int[terms.length][];
+        this.weights = new byte[terms.length][];
+        Map<String, List<Integer>> grams = new HashMap<>();
+        int t = 0;
+        for (LinkedHashMap<Integer, Integer> hits : index.values()) {
+            int[] ids = new int[hits.size()];
+            byte[] w = new byte[hits.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> hit : hits.entrySet()) {
+                ids[i] = hit.getKey();
+                w[i] = hit.getValue().byteValue();
+                i++;
+            }
+            postings[t] = ids;
+            weights[t] = w;
+
+            String term = terms[t];
+            for (int g = 0; g + 3 <= term.length(); g++) {
+                List<Integer> list = grams.computeIfAbsent(term.substring(g, g + 3), k -> new ArrayList<>());
+                if (list.isEmpty() || list.get(list.size() - 1) != t) list.add(t);
+            }
+            t++;
+        }
+
+        Map<String, int[]> frozen = new HashMap<>();
+        grams.forEach((gram, list) -> frozen.put(gram, list.stream().mapToInt(Integer::intValue).toArray()));
+        this.trigrams = frozen;
+    }
+
+    List<PriceEntry> find(String query, Predicate<PriceEntry> keep) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) return List.of();
+
+        int n = entries.size();
+        int[] score = new int[n];
+        int[] matched = new int[n];
+        int[] best = new int[n];
+        int[][] rows = new int[3][MAX_FUZZY_LENGTH + 1];
+
+        for (String token : tokens) {
+            Arrays.fill(best, 0);
+            boolean any = false;
+
+            int from = lowerBound(token);
+            for (int t = from; t < terms.length && terms[t].startsWith(token); t++) {
+                collect(t, terms[t].length() == token.length() ? EXACT : PREFIX, best);
+                any = true;
+            }
+
+            if (token.length() >= 3) {
+                for (int t : termsContaining(token)) {
+                    if (terms[t].startsWith(token) || !terms[t].contains(token)) continue;
+                    collect(t, SUBSTRING, best);
+                    any = true;
+                }
+            }
+
+            if (!any && token.length() >= 4 && token.length() <= MAX_FUZZY_LENGTH) {
+                int maxEdits = token.length() >= 8 ? 2 : 1;
+                int start = lowerBound(token.substring(0, 1));
+                for (int t = start; t < terms.length && terms[t].charAt(0) == token.charAt(0); t++) {
+                    if (withinPrefixEdits(token, terms[t], maxEdits, rows)) collect(t, FUZZY, best);
+                }
+            }
+
+            for (int e = 0; e < n; e++) {
+                if (best[e] > 0) {
+                    score[e] += best[e];
+                    matched[e]++;
+                }
+            }
+        }
+
+        long[] ranked = new long[n];
+        int count = 0;
+        for (int e = 0; e < n; e++) {
+            if (matched[e] == tokens.size() && keep.test(entries.get(e))) {
+                ranked[count++] = ((long) (Integer.MAX_VALUE - score[e]) << 32) | e;
+            }
+        }
+        Arrays.sort(ranked, 0, count);
+
+        List<PriceEntry> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            out.add(entries.get((int) ranked[i]));
+        }
+        return out;
+    }
+
+    private void collect(int term, int kind, int[] best) {
+        int[] ids = postings[term];
+        byte[] w = weights[term];
+        for (int i = 0; i < ids.length; i++) {
+            int s = kind * w[i];
+            if (s > best[ids[i]]) best[ids[i]] = s;
+        }
+    }
+
+    private int[] termsContaining(String token) {
+        int[] smallest = null;
+        for (int g = 0; g + 3 <= token.length(); g++) {
+            int[] list = trigrams.get(token.substring(g, g + 3));
+            if (list == null) return NO_TERMS;
+            if (smallest == null || list.length < smallest.length) smallest = list;
+        }
+        return smallest == null ? NO_TERMS : smallest;
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].compareTo(key) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static boolean withinPrefixEdits(String query, String term, int maxEdits, int[][] rows) {
+        int m = query.length();
+        int limit = Math.min(term.length(), m + maxEdits);
+        int[] before = rows[0];
+        int[] prev = rows[1];
+        int[] cur = rows[2];
+        for (int i = 0; i <= m; i++) {
+            prev[i] = i;
+        }
+        int best = prev[m];
+        for (int j = 1; j <= limit; j++) {
+            cur[0] = j;
+            int rowMin = j;
+            char c = term.charAt(j - 1);
+            for (int i = 1; i <= m; i++) {
+                int cost = query.charAt(i - 1) == c ? 0 : 1;
+                int d = Math.min(Math.min(prev[i] + 1, cur[i - 1] + 1), prev[i - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(i - 1) == term.charAt(j - 2) && query.charAt(i - 2) == c) {
+                    d = Math.min(d, before[i - 2] + 1);
+                }
+                cur[i] = d;
+                if (d < rowMin) rowMin = d;
+            }
+            if (cur[m] < best) best = cur[m];
+            if (rowMin > maxEdits) break;
+            int[] swap = before;
+            before = prev;
+            prev = cur;
+            cur = swap;
+        }
+        return best <= maxEdits;
+    }
+
+    private static void addTokens(TreeMap<String, LinkedHashMap<Integer, Integer>> index, String text, int entry, int weight) {
+        for (String token : tokenize(text)) {
+            index.computeIfAbsent(token, k -> new LinkedHashMap<>()).merge(entry, weight, Math::max);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        List<String> out = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean letter = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                out.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+}
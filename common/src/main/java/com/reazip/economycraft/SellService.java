@@ -24,7 +24,7 @@ public final class SellService {
             if (prices.isSellBlockedByDamage(stack)) return null;
             if (prices.isSellBlockedByContents(stack)) return null;
         }
-        if (prices.getUnitSell(stack) == null) return null;
+        if (entry.unitSell() <= 0) return null;
         return entry;
     }
 
@@ -45,7 +45,7 @@ public final class AdminPlayersUi {
     }
 
     private static PlayerPickerUi.Target refresh(EconomyManager eco, PlayerPickerUi.Target target) {
-        return new PlayerPickerUi.Target(target.id(), target.name(), eco.getBalance(target.id(), true));
+        return new PlayerPickerUi.Target(target.id(), target.name(), eco.getBalance(target.id()));
     }
 
     private static class TargetMenu extends CompatMenu {
@@ -71,7 +71,7 @@ public final class AdminPlayersUi {
 
         private void render() {
             container.clearContent();
-            long balance = eco.getBalance(target.id(), true);
+            long balance = eco.getBalance(target.id());
 
             ServerPlayer online = viewer.level().getServer().getPlayerList().getPlayer(target.id());
             ItemStack head = MenuUiSupport.createBalanceItem(eco, target.id(), online, target.name());
@@ -106,7 +106,7 @@ public final class AdminPlayersUi {
             if (slot < 0 || slot >= 27) return false;
             if (kind != ClickKind.PICKUP && kind != ClickKind.QUICK_MOVE) return true;
 
-            long balance = eco.getBalance(target.id(), true);
+            long balance = eco.getBalance(target.id());
             switch (slot) {
                 case GIVE -> NumberInputUi.openMoney(viewer, "Give to " + target.name(), subject(), "Amount",
                         100, 1, EconomyManager.MAX,
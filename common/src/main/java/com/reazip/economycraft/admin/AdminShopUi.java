@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
 
 public final class AdminShopUi {
     private AdminShopUi() {}
@@ -134,25 +135,27 @@ public final class AdminShopUi {
                             category != null ? category : "misc",
                             prototype.getMaxStackSize(), DEFAULT_BUY, DEFAULT_SELL);
 
-                    if (!store(picker, eco, draft)) {
-                        openList(picker, eco, origin, category, null, 0);
-                        return;
-                    }
-                    picker.sendSystemMessage(Component.literal("Added " + prototype.getHoverName().getString()
-                            + " to the server shop.").withStyle(ChatFormatting.GREEN));
-                    openEditor(picker, eco, origin, draft, category);
+                    store(picker, eco, draft, p -> {
+                        p.sendSystemMessage(Component.literal("Added " + prototype.getHoverName().getString()
+                                + " to the server shop.").withStyle(ChatFormatting.GREEN));
+                        openEditor(p, eco, origin, draft, category);
+                    }, p -> openList(p, eco, origin, category, null, 0));
                 },
                 p -> openList(p, eco, origin, category, null, 0));
     }
 
-    private static boolean store(ServerPlayer player, EconomyManager eco, Draft draft) {
-        boolean ok = eco.getPrices().upsert(draft.key(), draft.category(), draft.stack(),
-                draft.unitBuy(), draft.unitSell(), draft.customItem());
-        if (!ok) {
+    private static void store(ServerPlayer player, EconomyManager eco, Draft draft,
+                              Consumer<ServerPlayer> onSaved, Consumer<ServerPlayer> onFailed) {
+        eco.getPrices().upsert(draft.key(), draft.category(), draft.stack(),
+                draft.unitBuy(), draft.unitSell(), draft.customItem()).thenAcceptAsync(ok -> {
+            if (ok) {
+                onSaved.accept(player);
+                return;
+            }
             player.sendSystemMessage(MenuUiSupport.line("Could not write prices.json. Check the server log.",
                     ChatFormatting.RED));
-        }
-        return ok;
+            onFailed.accept(player);
+        }, player.level().getServer());
     }
 
     private static String labelFor(ItemStack stack) {
@@ -511,11 +514,7 @@ public final class AdminShopUi {
         }
 
         private void update(Draft next) {
-            if (store(viewer, eco, next)) {
-                openEditor(viewer, eco, origin, next, returnCategory);
-            } else {
-                back(viewer);
-            }
+            store(viewer, eco, next, p -> openEditor(p, eco, origin, next, returnCategory), this::back);
         }
 
         @Override
@@ -553,14 +552,13 @@ public final class AdminShopUi {
         lore.add(MenuUiSupport.line("Players will no longer see this item.", ChatFormatting.RED));
 
         ConfirmUi.open(player, "Delete this item?", draft.display(), "Delete it", lore,
-                p -> {
-                    boolean ok = eco.getPrices().delete(draft.key());
+                p -> eco.getPrices().delete(draft.key()).thenAcceptAsync(ok -> {
                     p.sendSystemMessage(ok
                             ? Component.literal("Removed " + draft.display().getHoverName().getString()
                                     + " from the server shop.").withStyle(ChatFormatting.GREEN)
                             : MenuUiSupport.line("Could not write prices.json. Check the server log.", ChatFormatting.RED));
                     openList(p, eco, origin, returnCategory, null, 0);
-                },
+                }, p.level().getServer()),
                 p -> openEditor(p, eco, origin, draft, returnCategory));
     }
 
@@ -630,11 +628,8 @@ public final class AdminShopUi {
 
         private void choose(ServerPlayer player, String category) {
             Draft next = draft.withCategory(category);
-            if (store(player, eco, next)) {
-                openEditor(player, eco, origin, next, returnCategory);
-            } else {
-                openList(player, eco, origin, returnCategory, null, 0);
-            }
+            store(player, eco, next, p -> openEditor(p, eco, origin, next, returnCategory),
+                    p -> openList(p, eco, origin, returnCategory, null, 0));
         }
 
         @Override
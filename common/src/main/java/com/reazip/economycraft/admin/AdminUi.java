@@ -9,6 +9,7 @@ import com.reazip.economycraft.util.MenuUiSupport;
 import com.reazip.economycraft.util.PermissionCompat;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.SimpleContainer;
 import net.minecraft.world.entity.player.Inventory;
@@ -88,12 +89,14 @@ public final class AdminUi {
                 case SETTINGS -> AdminSettingsUi.open(viewer, eco);
                 case PLAYERS -> AdminPlayersUi.open(viewer, eco);
                 case RELOAD -> {
-                    EconomyConfig.load(viewer.level().getServer());
-                    eco.getPrices().reload();
-                    AdminSettingsUi.applyRuntimeSettings(viewer.level().getServer());
-                    viewer.sendSystemMessage(Component.literal("Reloaded config.json and prices.json.")
-                            .withStyle(ChatFormatting.GREEN));
-                    render();
+                    MinecraftServer server = viewer.level().getServer();
+                    EconomyConfig.load(server);
+                    AdminSettingsUi.applyRuntimeSettings(server);
+                    eco.getPrices().reload().thenRunAsync(() -> {
+                        viewer.sendSystemMessage(Component.literal("Reloaded config.json and prices.json.")
+                                .withStyle(ChatFormatting.GREEN));
+                        render();
+                    }, server);
                 }
                 case BACK -> HubUi.open(viewer);
                 default -> {
@@ -0,0 +1,404 @@
+package com.reazip.economycraft.balance;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+public final class AccountLedger implements BalanceStore.Accounts {
+    public static final long NONE = BalanceStore.NONE;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int STRIPES = 64;
+
+    private final StampedLock structure = new StampedLock();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Object2IntOpenHashMap<UUID> slots = new Object2IntOpenHashMap<>();
+    private UUID[] ids = new UUID[INITIAL_CAPACITY];
+    private long[] balance = new long[INITIAL_CAPACITY];
+    private long[] lastDaily = new long[INITIAL_CAPACITY];
+    private long[] sellDay = new long[INITIAL_CAPACITY];
+    private long[] sellAmount = new long[INITIAL_CAPACITY];
+    private int used;
+    private final AtomicInteger accounts = new AtomicInteger();
+    private volatile BalanceStore store;
+    private volatile ChangeListener listener;
+
+    public AccountLedger() {
+        slots.defaultReturnValue(-1);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public void attach(BalanceStore store) {
+        this.store = store;
+    }
+
+    public void listen(ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    public boolean has(UUID id) {
+        return balance(id) != NONE;
+    }
+
+    public int size() {
+        return accounts.get();
+    }
+
+    public long balance(UUID id) {
+        return read(id, 0);
+    }
+
+    public long lastDaily(UUID id) {
+        return read(id, 1);
+    }
+
+    public long sellDay(UUID id) {
+        return read(id, 2);
+    }
+
+    public long sellAmount(UUID id) {
+        long stamp = structure.readLock();
+        try {
+            int slot = slots.getInt(id);
+            if (slot < 0) return 0L;
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            try {
+                return sellDay[slot] == NONE ? 0L : sellAmount[slot];
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    private long read(UUID id, int column) {
+        long stamp = structure.readLock();
+        try {
+            int slot = slots.getInt(id);
+            if (slot < 0) return NONE;
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            try {
+                return switch (column) {
+                    case 0 -> balance[slot];
+                    case 1 -> lastDaily[slot];
+                    default -> sellDay[slot];
+                };
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    public long set(UUID id, long value) {
+        int slot = slotFor(id);
+        long previous;
+        long stamp = structure.readLock();
+        try {
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            try {
+                previous = balance[slot];
+                balance[slot] = value;
+                countChange(previous, value);
+                persist(id, value);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+        notify(id, previous, value);
+        return previous;
+    }
+
+    public boolean compareAndSet(UUID id, long expected, long value) {
+        int slot = expected == NONE ? slotFor(id) : find(id);
+        if (slot < 0) return false;
+        long stamp = structure.readLock();
+        try {
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            try {
+                if (balance[slot] != expected) return false;
+                balance[slot] = value;
+                countChange(expected, value);
+                persist(id, value);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+        notify(id, expected, value);
+        return true;
+    }
+
+    public long add(UUID id, long delta, long min, long max) {
+        long previous;
+        long updated;
+        long stamp = structure.readLock();
+        try {
+            int slot = slots.getInt(id);
+            if (slot < 0) return NONE;
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            try {
+                previous = balance[slot];
+                if (previous == NONE) return NONE;
+                updated = Math.clamp(previous + delta, min, max);
+                balance[slot] = updated;
+                persist(id, updated);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+        notify(id, previous, updated);
+        return updated;
+    }
+
+    public boolean withdraw(UUID id, long amount) {
+        long previous;
+        long stamp = structure.readLock();
+        try {
+            int slot = slots.getInt(id);
+            if (slot < 0) return false;
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            try {
+                previous = balance[slot];
+                if (previous == NONE || previous < amount) return false;
+                balance[slot] = previous - amount;
+                persist(id, previous - amount);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+        notify(id, previous, previous - amount);
+        return true;
+    }
+
+    public boolean apply(UUID[] ids, long[] deltas, long min, long max) {
+        long[] previous = new long[ids.length];
+        long[] updated = new long[ids.length];
+        long stamp = structure.readLock();
+        try {
+            int[] at = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                at[i] = slots.getInt(ids[i]);
+                if (at[i] < 0) return false;
+            }
+
+            int[] order = new int[ids.length];
+            int locked = 0;
+            for (int slot : at) {
+                order[locked++] = slot & (STRIPES - 1);
+            }
+            Arrays.sort(order);
+            int unique = 0;
+            for (int i = 0; i < locked; i++) {
+                if (unique == 0 || order[unique - 1] != order[i]) order[unique++] = order[i];
+            }
+
+            for (int i = 0; i < unique; i++) {
+                stripes[order[i]].lock();
+            }
+            try {
+                for (int i = 0; i < ids.length; i++) {
+                    long current = balance[at[i]];
+                    if (current == NONE) return false;
+                    long next = current + deltas[i];
+                    if (next < min) return false;
+                    previous[i] = current;
+                    updated[i] = Math.min(next, max);
+                }
+                for (int i = 0; i < ids.length; i++) {
+                    balance[at[i]] = updated[i];
+                    persist(ids[i], updated[i]);
+                }
+            } finally {
+                for (int i = unique - 1; i >= 0; i--) {
+                    stripes[order[i]].unlock();
+                }
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            notify(ids[i], previous[i], updated[i]);
+        }
+        return true;
+    }
+
+    public void setLastDaily(UUID id, long day) {
+        int slot = slotFor(id);
+        long stamp = structure.readLock();
+        try {
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            try {
+                lastDaily[slot] = day;
+                BalanceStore target = store;
+                if (target != null) target.daily(id, day);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    public void setDailySell(UUID id, long day, long amount) {
+        int slot = slotFor(id);
+        long stamp = structure.readLock();
+        try {
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            try {
+                sellDay[slot] = day;
+                sellAmount[slot] = amount;
+                BalanceStore target = store;
+                if (target != null) target.dailySell(id, day, amount);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    public void load(UUID id, long balance, long daily, long sellDay, long sellAmount) {
+        set(id, balance);
+        int slot = slotFor(id);
+        long stamp = structure.readLock();
+        try {
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            try {
+                this.lastDaily[slot] = daily;
+                this.sellDay[slot] = sellDay;
+                this.sellAmount[slot] = sellAmount;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void capture(Consumer<BalanceStore.Snapshot> whileLocked) {
+        long stamp = structure.writeLock();
+        try {
+            whileLocked.accept(new BalanceStore.Snapshot(used, Arrays.copyOf(ids, used), Arrays.copyOf(balance, used),
+                    Arrays.copyOf(lastDaily, used), Arrays.copyOf(sellDay, used), Arrays.copyOf(sellAmount, used)));
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    public void forEachBalance(BalanceVisitor visitor) {
+        UUID[] idCopy;
+        long[] balanceCopy;
+        int n;
+        long stamp = structure.writeLock();
+        try {
+            n = used;
+            idCopy = Arrays.copyOf(ids, n);
+            balanceCopy = Arrays.copyOf(balance, n);
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+
+        for (int slot = 0; slot < n; slot++) {
+            if (balanceCopy[slot] != NONE) visitor.balance(idCopy[slot], balanceCopy[slot]);
+        }
+    }
+
+    private ReentrantLock stripe(int slot) {
+        return stripes[slot & (STRIPES - 1)];
+    }
+
+    private void persist(UUID id, long value) {
+        BalanceStore target = store;
+        if (target == null) return;
+        if (value == NONE) {
+            target.remove(id);
+        } else {
+            target.balance(id, value);
+        }
+    }
+
+    private void notify(UUID id, long previous, long value) {
+        ChangeListener changes = listener;
+        if (changes != null && previous != value) changes.changed(id, previous, value);
+    }
+
+    private void countChange(long previous, long value) {
+        if (previous == NONE && value != NONE) accounts.incrementAndGet();
+        if (previous != NONE && value == NONE) accounts.decrementAndGet();
+    }
+
+    private int find(UUID id) {
+        long stamp = structure.readLock();
+        try {
+            return slots.getInt(id);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    private int slotFor(UUID id) {
+        int slot = find(id);
+        if (slot >= 0) return slot;
+
+        long stamp = structure.writeLock();
+        try {
+            slot = slots.getInt(id);
+            if (slot >= 0) return slot;
+
+            if (used == ids.length) {
+                int grown = ids.length * 2;
+                ids = Arrays.copyOf(ids, grown);
+                balance = Arrays.copyOf(balance, grown);
+                lastDaily = Arrays.copyOf(lastDaily, grown);
+                sellDay = Arrays.copyOf(sellDay, grown);
+                sellAmount = Arrays.copyOf(sellAmount, grown);
+            }
+            slot = used++;
+            ids[slot] = id;
+            balance[slot] = NONE;
+            lastDaily[slot] = NONE;
+            sellDay[slot] = NONE;
+            sellAmount[slot] = 0L;
+            slots.put(id, slot);
+            return slot;
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    @FunctionalInterface
+    public interface BalanceVisitor {
+        void balance(UUID id, long balance);
+    }
+
+    @FunctionalInterface
+    public interface ChangeListener {
+        void changed(UUID id, long previous, long balance);
+    }
+}
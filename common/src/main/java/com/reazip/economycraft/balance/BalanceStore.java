@@ -0,0 +1,55 @@
+package com.reazip.economycraft.balance;
+
+import com.reazip.economycraft.EconomyConfig;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public interface BalanceStore {
+    long NONE = Long.MIN_VALUE;
+
+    String JSON = "json";
+    String BINARY = "binary";
+
+    boolean load(AccountVisitor sink);
+
+    void balance(UUID id, long balance);
+
+    void remove(UUID id);
+
+    void daily(UUID id, long day);
+
+    void dailySell(UUID id, long day, long amount);
+
+    boolean checkpointDue();
+
+    void save(Accounts source);
+
+    void close();
+
+    static BalanceStore open(Path dataDir) {
+        return BINARY.equals(EconomyConfig.get().balanceStorage)
+                ? new MappedBalanceStore(dataDir)
+                : new JsonBalanceStore(dataDir);
+    }
+
+    @FunctionalInterface
+    interface AccountVisitor {
+        void account(UUID id, long balance, long lastDaily, long sellDay, long sellAmount);
+    }
+
+    @FunctionalInterface
+    interface Accounts {
+        void capture(Consumer<Snapshot> whileLocked);
+    }
+
+    record Snapshot(int size, UUID[] ids, long[] balances, long[] lastDaily, long[] sellDays, long[] sellAmounts) {
+        public void forEach(AccountVisitor visitor) {
+            for (int i = 0; i < size; i++) {
+                if (balances[i] == NONE && lastDaily[i] == NONE && sellDays[i] == NONE) continue;
+                visitor.account(ids[i], balances[i], lastDaily[i], sellDays[i], sellAmounts[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.reazip.economycraft.balance;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.reflect.TypeToken;
+import com.mojang.logging.LogUtils;
+import com.reazip.economycraft.util.AsyncFileWriter;
+import com.reazip.economycraft.util.AtomicFiles;
+import com.reazip.economycraft.util.BalanceJournal;
+import com.reazip.economycraft.util.PersistenceScheduler;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public final class JsonBalanceStore implements BalanceStore {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Gson GSON = new Gson();
+    private static final Type LEGACY_BALANCE_TYPE = new TypeToken<Map<UUID, Double>>(){}.getType();
+    private static final Type LONG_TYPE = new TypeToken<Map<UUID, Long>>(){}.getType();
+    private static final Type DAILY_SELL_TYPE = new TypeToken<Map<UUID, DailySellData>>(){}.getType();
+    private static final int JOURNAL_COMPACT_THRESHOLD = 4096;
+
+    private final Path dataDir;
+    private final Path file;
+    private final Path dailyFile;
+    private final Path dailySellFile;
+    private final BalanceJournal journal;
+
+    public JsonBalanceStore(Path dataDir) {
+        this.dataDir = dataDir;
+        this.file = dataDir.resolve("balances.json");
+        this.dailyFile = dataDir.resolve("daily.json");
+        this.dailySellFile = dataDir.resolve("daily_sells.json");
+        this.journal = new BalanceJournal(dataDir.resolve("balances.journal"));
+    }
+
+    @Override
+    public boolean load(AccountVisitor sink) {
+        Path binary = MappedBalanceStore.file(dataDir);
+        if (Files.exists(binary)) {
+            importBinary(binary, sink);
+            return false;
+        }
+
+        Map<UUID, Long> balances = new HashMap<>();
+        Map<UUID, Long> lastDaily = new HashMap<>();
+        Map<UUID, DailySellData> dailySells = new HashMap<>();
+        readSnapshot(balances, lastDaily, dailySells);
+
+        int replayed = journal.replay((op, id, a, b) -> {
+            switch (op) {
+                case BalanceJournal.OP_BALANCE -> balances.put(id, a);
+                case BalanceJournal.OP_REMOVE -> balances.remove(id);
+                case BalanceJournal.OP_DAILY -> lastDaily.put(id, a);
+                case BalanceJournal.OP_DAILY_SELL -> dailySells.put(id, new DailySellData(a, b));
+                default -> {
+                }
+            }
+        });
+        if (replayed > 0) {
+            LOGGER.info("[EconomyCraft] Replayed {} balance changes from {}", replayed, journal.file());
+        }
+
+        emit(balances, lastDaily, dailySells, sink);
+        return !journal.isEmpty();
+    }
+
+    private void readSnapshot(Map<UUID, Long> balances, Map<UUID, Long> lastDaily, Map<UUID, DailySellData> dailySells) {
+        JsonElement json = AtomicFiles.readJson(file);
+        if (json != null) {
+            try {
+                Map<UUID, Double> map = GSON.fromJson(json, LEGACY_BALANCE_TYPE);
+                if (map != null) {
+                    for (Map.Entry<UUID, Double> e : map.entrySet()) {
+                        if (e.getValue() != null) balances.put(e.getKey(), e.getValue().longValue());
+                    }
+                }
+            } catch (Exception ex) {
+                LOGGER.error("[EconomyCraft] Failed to load {}", file, ex);
+            }
+        }
+
+        json = AtomicFiles.readJson(dailyFile);
+        if (json != null) {
+            try {
+                Map<UUID, Long> map = GSON.fromJson(json, LONG_TYPE);
+                if (map != null) {
+                    for (Map.Entry<UUID, Long> e : map.entrySet()) {
+                        if (e.getValue() != null) lastDaily.put(e.getKey(), e.getValue());
+                    }
+                }
+            } catch (Exception ex) {
+                LOGGER.error("[EconomyCraft] Failed to load {}", dailyFile, ex);
+            }
+        }
+
+        json = AtomicFiles.readJson(dailySellFile);
+        if (json != null) {
+            try {
+                Map<UUID, DailySellData> map = GSON.fromJson(json, DAILY_SELL_TYPE);
+                if (map != null) {
+                    for (Map.Entry<UUID, DailySellData> e : map.entrySet()) {
+                        if (e.getValue() != null) dailySells.put(e.getKey(), e.getValue());
+                    }
+                }
+            } catch (Exception ex) {
+                LOGGER.error("[EconomyCraft] Failed to load {}", dailySellFile, ex);
+            }
+        }
+    }
+
+    private void importBinary(Path binary, AccountVisitor sink) {
+        Map<UUID, Long> balances = new HashMap<>();
+        Map<UUID, Long> lastDaily = new HashMap<>();
+        Map<UUID, DailySellData> dailySells = new HashMap<>();
+        int accounts = MappedBalanceStore.read(binary, (id, balance, daily, sellDay, sellAmount) -> {
+            if (balance != NONE) balances.put(id, balance);
+            if (daily != NONE) lastDaily.put(id, daily);
+            if (sellDay != NONE) dailySells.put(id, new DailySellData(sellDay, sellAmount));
+        });
+        if (accounts < 0) {
+            throw new IllegalStateException("[EconomyCraft] Failed to import " + binary + "; move it away to keep using balances.json");
+        }
+
+        emit(balances, lastDaily, dailySells, sink);
+        write(balances, lastDaily, dailySells, journal.rotate());
+        AsyncFileWriter.flush();
+
+        Path retired = binary.resolveSibling(binary.getFileName() + ".migrated");
+        try {
+            Files.move(binary, retired, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            LOGGER.error("[EconomyCraft] Could not rename {} to {}", binary, retired, ex);
+        }
+        LOGGER.info("[EconomyCraft] Imported {} accounts from {} into {} and renamed it to {}.", accounts, binary, file, retired);
+    }
+
+    private static void emit(Map<UUID, Long> balances, Map<UUID, Long> lastDaily,
+                             Map<UUID, DailySellData> dailySells, AccountVisitor sink) {
+        Set<UUID> ids = new HashSet<>(balances.keySet());
+        ids.addAll(lastDaily.keySet());
+        ids.addAll(dailySells.keySet());
+        for (UUID id : ids) {
+            DailySellData sell = dailySells.get(id);
+            sink.account(id,
+                    balances.getOrDefault(id, NONE),
+                    lastDaily.getOrDefault(id, NONE),
+                    sell == null ? NONE : sell.day(),
+                    sell == null ? 0L : sell.amount());
+        }
+    }
+
+    @Override
+    public void balance(UUID id, long balance) {
+        journal.append(BalanceJournal.OP_BALANCE, id, balance, 0L);
+    }
+
+    @Override
+    public void remove(UUID id) {
+        journal.append(BalanceJournal.OP_REMOVE, id, 0L, 0L);
+    }
+
+    @Override
+    public void daily(UUID id, long day) {
+        journal.append(BalanceJournal.OP_DAILY, id, day, 0L);
+    }
+
+    @Override
+    public void dailySell(UUID id, long day, long amount) {
+        journal.append(BalanceJournal.OP_DAILY_SELL, id, day, amount);
+    }
+
+    @Override
+    public boolean checkpointDue() {
+        return journal.pending() >= JOURNAL_COMPACT_THRESHOLD;
+    }
+
+    @Override
+    public void save(Accounts source) {
+        source.capture(accounts -> {
+            int segment = journal.rotate();
+            PersistenceScheduler.encode(file, () -> write(accounts, segment));
+        });
+    }
+
+    private void write(Snapshot accounts, int segment) {
+        Map<UUID, Long> balances = new HashMap<>();
+        Map<UUID, Long> lastDaily = new HashMap<>();
+        Map<UUID, DailySellData> dailySells = new HashMap<>();
+        accounts.forEach((id, balance, daily, sellDay, sellAmount) -> {
+            if (balance != NONE) balances.put(id, balance);
+            if (daily != NONE) lastDaily.put(id, daily);
+            if (sellDay != NONE) dailySells.put(id, new DailySellData(sellDay, sellAmount));
+        });
+        write(balances, lastDaily, dailySells, segment);
+    }
+
+    private void write(Map<UUID, Long> balances, Map<UUID, Long> lastDaily, Map<UUID, DailySellData> dailySells,
+                       int segment) {
+        AsyncFileWriter.writeAsync(file, GSON.toJson(balances, LONG_TYPE));
+        AsyncFileWriter.writeAsync(dailyFile, GSON.toJson(lastDaily, LONG_TYPE));
+        AsyncFileWriter.writeAsync(dailySellFile, GSON.toJson(dailySells, DAILY_SELL_TYPE));
+        journal.retire(segment, List.of(file, dailyFile, dailySellFile));
+    }
+
+    @Override
+    public void close() {}
+
+    private record DailySellData(long day, long amount) {}
+}
@@ -0,0 +1,159 @@
+package com.reazip.economycraft.balance;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class LeaderboardIndex {
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private Node root;
+
+    public synchronized void update(UUID id, long balance, String name) {
+        Node old = nodes.remove(id);
+        if (old != null) root = remove(root, old);
+        if (balance == AccountLedger.NONE) return;
+
+        Node node = new Node(id, balance, name == null ? id.toString() : name);
+        nodes.put(id, node);
+        Node[] parts = split(root, node, false);
+        root = merge(merge(parts[0], node), parts[1]);
+    }
+
+    public synchronized void refresh(UUID id, AccountLedger ledger, String name) {
+        update(id, ledger.balance(id), name);
+    }
+
+    public synchronized void rename(UUID id, String name) {
+        Node node = nodes.get(id);
+        if (node == null || node.name.equals(name)) return;
+        update(id, node.balance, name);
+    }
+
+    public synchronized void clear() {
+        nodes.clear();
+        root = null;
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    public synchronized void range(int from, int count, AccountLedger.BalanceVisitor visitor) {
+        if (from < 0 || count <= 0) return;
+
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        Node t = root;
+        int k = from;
+        while (t != null) {
+            int leftSize = size(t.left);
+            if (k < leftSize) {
+                stack.push(t);
+                t = t.left;
+            } else if (k == leftSize) {
+                stack.push(t);
+                break;
+            } else {
+                k -= leftSize + 1;
+                t = t.right;
+            }
+        }
+        if (t == null) return;
+
+        int visited = 0;
+        while (visited < count && !stack.isEmpty()) {
+            Node current = stack.pop();
+            visitor.balance(current.id, current.balance);
+            visited++;
+            for (Node n = current.right; n != null; n = n.left) {
+                stack.push(n);
+            }
+        }
+    }
+
+    public synchronized int rankOf(UUID id) {
+        Node node = nodes.get(id);
+        if (node == null) return -1;
+
+        int rank = 0;
+        Node t = root;
+        while (t != null) {
+            int c = compare(node, t);
+            if (c < 0) {
+                t = t.left;
+            } else if (c == 0) {
+                return rank + size(t.left);
+            } else {
+                rank += size(t.left) + 1;
+                t = t.right;
+            }
+        }
+        return -1;
+    }
+
+    private static int compare(Node a, Node b) {
+        int c = Long.compare(b.balance, a.balance);
+        if (c != 0) return c;
+        c = String.CASE_INSENSITIVE_ORDER.compare(a.name, b.name);
+        if (c != 0) return c;
+        return a.id.compareTo(b.id);
+    }
+
+    private static int size(Node t) {
+        return t == null ? 0 : t.size;
+    }
+
+    private static Node resize(Node t) {
+        t.size = 1 + size(t.left) + size(t.right);
+        return t;
+    }
+
+    private static Node[] split(Node t, Node key, boolean inclusive) {
+        if (t == null) return new Node[]{null, null};
+        int c = compare(t, key);
+        if (c < 0 || (inclusive && c == 0)) {
+            Node[] parts = split(t.right, key, inclusive);
+            t.right = parts[0];
+            parts[0] = resize(t);
+            return parts;
+        }
+        Node[] parts = split(t.left, key, inclusive);
+        t.left = parts[1];
+        parts[1] = resize(t);
+        return parts;
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            return resize(a);
+        }
+        b.left = merge(a, b.left);
+        return resize(b);
+    }
+
+    private static Node remove(Node t, Node node) {
+        Node[] lower = split(t, node, false);
+        Node[] upper = split(lower[1], node, true);
+        return merge(lower[0], upper[1]);
+    }
+
+    private static final class Node {
+        final UUID id;
+        final long balance;
+        final String name;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(UUID id, long balance, String name) {
+            this.id = id;
+            this.balance = balance;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.reazip.economycraft.balance;
+
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public final class MappedBalanceStore implements BalanceStore {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final String FILE_NAME = "balances.dat";
+    private static final int MAGIC = 0x45434253;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 48;
+    private static final int MIN_CAPACITY = 256;
+
+    private static final int MSB = 0;
+    private static final int LSB = 8;
+    private static final int BALANCE = 16;
+    private static final int DAILY = 24;
+    private static final int SELL_DAY = 32;
+    private static final int SELL_AMOUNT = 40;
+
+    private final Path dataDir;
+    private final Path file;
+    private final ReentrantReadWriteLock remap = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    private long[] indexMsb;
+    private long[] indexLsb;
+    private int[] indexSlot;
+
+    public MappedBalanceStore(Path dataDir) {
+        this.dataDir = dataDir;
+        this.file = file(dataDir);
+    }
+
+    static Path file(Path dataDir) {
+        return dataDir.resolve(FILE_NAME);
+    }
+
+    @Override
+    public boolean load(AccountVisitor sink) {
+        remap.writeLock().lock();
+        try {
+            return loadLocked(sink);
+        } finally {
+            remap.writeLock().unlock();
+        }
+    }
+
+    private boolean loadLocked(AccountVisitor sink) {
+        if (Files.exists(file) && !isValid(file)) {
+            Path corrupt = file.resolveSibling(FILE_NAME + ".corrupt");
+            LOGGER.error("[EconomyCraft] {} is damaged; moving it to {} and importing balances.json instead.", file, corrupt);
+            try {
+                Files.move(file, corrupt, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                throw new IllegalStateException("[EconomyCraft] Could not move the damaged " + file + " out of the way", ex);
+            }
+        }
+
+        List<Account> imported = null;
+        if (Files.notExists(file)) {
+            List<Account> accounts = new ArrayList<>();
+            new JsonBalanceStore(dataDir).load((id, balance, daily, sellDay, sellAmount) ->
+                    accounts.add(new Account(id, balance, daily, sellDay, sellAmount)));
+            imported = accounts;
+        }
+
+        try {
+            open();
+        } catch (IOException ex) {
+            throw new IllegalStateException("[EconomyCraft] Failed to open " + file, ex);
+        }
+
+        if (imported != null) {
+            for (Account a : imported) {
+                int offset = offset(slotFor(a.id()));
+                buffer.putLong(offset + BALANCE, a.balance());
+                buffer.putLong(offset + DAILY, a.daily());
+                buffer.putLong(offset + SELL_DAY, a.sellDay());
+                buffer.putLong(offset + SELL_AMOUNT, a.sellAmount());
+            }
+            buffer.force();
+            if (!imported.isEmpty()) {
+                LOGGER.info("[EconomyCraft] Imported {} accounts from balances.json into {}.", imported.size(), file);
+            }
+        }
+
+        for (int slot = 0; slot < count; slot++) {
+            int offset = offset(slot);
+            sink.account(new UUID(buffer.getLong(offset + MSB), buffer.getLong(offset + LSB)),
+                    buffer.getLong(offset + BALANCE), buffer.getLong(offset + DAILY),
+                    buffer.getLong(offset + SELL_DAY), buffer.getLong(offset + SELL_AMOUNT));
+        }
+        return false;
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+            capacity = MIN_CAPACITY;
+            count = 0;
+            map();
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, 0);
+        } else {
+            capacity = Math.max(MIN_CAPACITY, (int) ((size - HEADER_BYTES) / RECORD_BYTES));
+            map();
+            count = buffer.getInt(8);
+        }
+
+        int indexSize = Integer.highestOneBit(Math.max(MIN_CAPACITY, count) * 4 - 1) << 1;
+        indexMsb = new long[indexSize];
+        indexLsb = new long[indexSize];
+        indexSlot = new int[indexSize];
+        Arrays.fill(indexSlot, -1);
+        for (int slot = 0; slot < count; slot++) {
+            int offset = offset(slot);
+            index(buffer.getLong(offset + MSB), buffer.getLong(offset + LSB), slot);
+        }
+    }
+
+    private void map() throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+    }
+
+    private static boolean isValid(Path file) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES) return false;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && ch.read(header) >= 0) {}
+            header.flip();
+            int count = header.getInt(8);
+            return header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                    && count >= 0 && HEADER_BYTES + (long) count * RECORD_BYTES <= size;
+        } catch (IOException ex) {
+            LOGGER.error("[EconomyCraft] Failed to read {}", file, ex);
+            return false;
+        }
+    }
+
+    static int read(Path file, AccountVisitor sink) {
+        if (!isValid(file)) return -1;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            int count = in.getInt(8);
+            for (int slot = 0; slot < count; slot++) {
+                int offset = HEADER_BYTES + slot * RECORD_BYTES;
+                sink.account(new UUID(in.getLong(offset + MSB), in.getLong(offset + LSB)),
+                        in.getLong(offset + BALANCE), in.getLong(offset + DAILY),
+                        in.getLong(offset + SELL_DAY), in.getLong(offset + SELL_AMOUNT));
+            }
+            return count;
+        } catch (IOException ex) {
+            LOGGER.error("[EconomyCraft] Failed to read {}", file, ex);
+            return -1;
+        }
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * RECORD_BYTES;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int find(long msb, long lsb) {
+        int mask = indexSlot.length - 1;
+        for (int i = hash(msb, lsb) & mask; ; i = (i + 1) & mask) {
+            int slot = indexSlot[i];
+            if (slot < 0) return -1;
+            if (indexMsb[i] == msb && indexLsb[i] == lsb) return slot;
+        }
+    }
+
+    private void index(long msb, long lsb, int slot) {
+        int mask = indexSlot.length - 1;
+        int i = hash(msb, lsb) & mask;
+        while (indexSlot[i] >= 0) {
+            i = (i + 1) & mask;
+        }
+        indexMsb[i] = msb;
+        indexLsb[i] = lsb;
+        indexSlot[i] = slot;
+    }
+
+    private void growIndex() {
+        long[] oldMsb = indexMsb;
+        long[] oldLsb = indexLsb;
+        int[] oldSlot = indexSlot;
+        indexMsb = new long[oldSlot.length * 2];
+        indexLsb = new long[oldSlot.length * 2];
+        indexSlot = new int[oldSlot.length * 2];
+        Arrays.fill(indexSlot, -1);
+        for (int i = 0; i < oldSlot.length; i++) {
+            if (oldSlot[i] >= 0) index(oldMsb[i], oldLsb[i], oldSlot[i]);
+        }
+    }
+
+    private int slotFor(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        int slot = find(msb, lsb);
+        if (slot >= 0) return slot;
+
+        if (count == capacity) {
+            capacity *= 2;
+            try {
+                buffer.force();
+                map();
+            } catch (IOException ex) {
+                throw new IllegalStateException("[EconomyCraft] Failed to grow " + file, ex);
+            }
+        }
+        if ((count + 1) * 2 > indexSlot.length) growIndex();
+
+        slot = count;
+        int offset = offset(slot);
+        buffer.putLong(offset + MSB, msb);
+        buffer.putLong(offset + LSB, lsb);
+        buffer.putLong(offset + BALANCE, NONE);
+        buffer.putLong(offset + DAILY, NONE);
+        buffer.putLong(offset + SELL_DAY, NONE);
+        buffer.putLong(offset + SELL_AMOUNT, 0L);
+        count++;
+        buffer.putInt(8, count);
+        index(msb, lsb, slot);
+        return slot;
+    }
+
+    @Override
+    public void balance(UUID id, long balance) {
+        put(id, BALANCE, balance);
+    }
+
+    @Override
+    public void remove(UUID id) {
+        remap.readLock().lock();
+        try {
+            int slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (slot >= 0) buffer.putLong(offset(slot) + BALANCE, NONE);
+        } finally {
+            remap.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void daily(UUID id, long day) {
+        put(id, DAILY, day);
+    }
+
+    @Override
+    public void dailySell(UUID id, long day, long amount) {
+        put(id, SELL_DAY, day);
+        put(id, SELL_AMOUNT, amount);
+    }
+
+    private void put(UUID id, int field, long value) {
+        remap.readLock().lock();
+        try {
+            int slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (slot >= 0) {
+                buffer.putLong(offset(slot) + field, value);
+                return;
+            }
+        } finally {
+            remap.readLock().unlock();
+        }
+
+        remap.writeLock().lock();
+        try {
+            int offset = offset(slotFor(id));
+            buffer.putLong(offset + field, value);
+        } finally {
+            remap.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean checkpointDue() {
+        return false;
+    }
+
+    @Override
+    public void save(Accounts source) {
+        remap.readLock().lock();
+        try {
+            if (buffer != null) buffer.force();
+        } finally {
+            remap.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        remap.writeLock().lock();
+        try {
+            if (channel == null) return;
+            buffer.force();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                LOGGER.error("[EconomyCraft] Failed to close {}", file, ex);
+            }
+            channel = null;
+        } finally {
+            remap.writeLock().unlock();
+        }
+    }
+
+    private record Account(UUID id, long balance, long daily, long sellDay, long sellAmount) {}
+}
@@ -0,0 +1,91 @@
+package com.reazip.economycraft.orders;
+
+import com.reazip.economycraft.PriceRegistry;
+import com.reazip.economycraft.PriceRegistry.PriceEntry;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+final class OrderBook {
+    private static final Comparator<Node> BEST_FIRST = Comparator.comparingDouble(Node::rate).reversed()
+            .thenComparing(Comparator.comparingInt(Node::id).reversed());
+
+    private final Map<PriceEntry, NavigableSet<Node>> books = new IdentityHashMap<>();
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private PriceRegistry prices;
+    private long revision;
+
+    void add(OrderRequest order) {
+        if (prices == null || !order.isFunded()) return;
+        PriceEntry entry = prices.resolve(order.item);
+        if (entry != null) insert(new Node(order.id, rate(order), entry, order));
+    }
+
+    void update(OrderRequest order) {
+        Node node = detach(order.id);
+        if (node != null) insert(new Node(order.id, rate(order), node.entry(), order));
+    }
+
+    void remove(OrderRequest order) {
+        detach(order.id);
+    }
+
+    Iterable<OrderRequest> bestFirst(PriceRegistry prices, PriceEntry entry, Collection<OrderRequest> all) {
+        if (this.prices != prices || revision != prices.revision()) rebuild(prices, all);
+        NavigableSet<Node> book = books.get(entry);
+        if (book == null) return List.of();
+        return () -> new Iterator<>() {
+            private final Iterator<Node> it = book.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public OrderRequest next() {
+                return it.next().order();
+            }
+        };
+    }
+
+    private void rebuild(PriceRegistry prices, Collection<OrderRequest> all) {
+        this.prices = prices;
+        this.revision = prices.revision();
+        books.clear();
+        nodes.clear();
+        for (OrderRequest order : all) {
+            add(order);
+        }
+    }
+
+    private void insert(Node node) {
+        nodes.put(node.id(), node);
+        books.computeIfAbsent(node.entry(), k -> new TreeSet<>(BEST_FIRST)).add(node);
+    }
+
+    private Node detach(int id) {
+        Node node = nodes.remove(id);
+        if (node == null) return null;
+        NavigableSet<Node> book = books.get(node.entry());
+        if (book != null) {
+            book.remove(node);
+            if (book.isEmpty()) books.remove(node.entry());
+        }
+        return node;
+    }
+
+    private static double rate(OrderRequest order) {
+        if (order.amount <= 0 || order.item == null || order.item.isEmpty()) return 0;
+        return order.price / (double) order.amount;
+    }
+
+    private record Node(int id, double rate, PriceEntry entry, OrderRequest order) {}
+}
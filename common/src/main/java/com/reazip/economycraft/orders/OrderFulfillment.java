@@ -11,6 +11,7 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,7 +21,7 @@ public final class OrderFulfillment {
     private OrderFulfillment() {}
 
     public enum Status {
-        OK, ORDER_GONE, OWN_ORDER, INVALID_AMOUNT, NOT_ENOUGH_ITEMS, REQUESTER_CANT_PAY
+        OK, ORDER_GONE, OWN_ORDER, INVALID_AMOUNT, NOT_ENOUGH_ITEMS, REQUESTER_CANT_PAY, REQUESTER_BALANCE_FULL
     }
 
     public record Result(Status status, int given, long payout, int remaining, ItemStack item, UUID requester) {
@@ -29,6 +30,21 @@ public final class OrderFulfillment {
         }
     }
 
+    public static boolean post(EconomyManager eco, OrderRequest order) {
+        if (order.price < 0 || !eco.removeMoney(order.requester, order.price)) return false;
+        order.escrow = order.price;
+        eco.getOrders().addRequest(order);
+        return true;
+    }
+
+    @Nullable
+    public static OrderRequest cancel(EconomyManager eco, int orderId) {
+        OrderManager orders = eco.getOrders();
+        OrderRequest order = orders.getRequest(orderId);
+        if (order == null || !refundEscrow(eco, order)) return null;
+        return orders.removeRequest(orderId);
+    }
+
     public static Result fulfill(EconomyManager eco, ServerPlayer fulfiller, int orderId, int requestedAmount) {
         return fulfill(eco, fulfiller, orderId, requestedAmount, false);
     }
@@ -58,17 +74,17 @@ public final class OrderFulfillment {
         ItemStack itemProto = order.item.copy();
         UUID requester = order.requester;
 
-        if (!eco.removeMoney(requester, payment)) {
-            return new Result(Status.REQUESTER_CANT_PAY, 0, 0, order.amount, itemProto, order.requester);
+        long tax = Math.round(payment * EconomyConfig.get().taxRate);
+        long payout = payment - tax;
+        if (!settlement(eco, order, payment, give).debit(requester, payment).credit(fulfiller.getUUID(), payout).commit()) {
+            return new Result(refused(eco, order, payment, give), 0, 0, order.amount, itemProto, order.requester);
         }
 
         removeItems(fulfiller, itemProto, give, excludeArmor);
-        long tax = Math.round(payment * EconomyConfig.get().taxRate);
-        long payout = payment - tax;
-        eco.addMoney(fulfiller.getUUID(), payout);
 
         deliver(orders, requester, itemProto, give);
 
+        release(order, payment, give);
         order.amount -= give;
         order.price -= payment;
         int remaining = order.amount;
@@ -76,7 +92,7 @@ public final class OrderFulfillment {
             orders.removeRequest(order.id);
             remaining = 0;
         } else {
-            orders.markChanged();
+            orders.markChanged(order);
         }
 
         notifyRequester(eco.getServer(), requester, give, itemProto);
@@ -108,17 +124,17 @@ public final class OrderFulfillment {
         ItemStack itemProto = order.item.copy();
         UUID requester = order.requester;
 
-        if (!eco.removeMoney(requester, payment)) {
-            return new Result(Status.REQUESTER_CANT_PAY, 0, 0, order.amount, itemProto, order.requester);
+        long tax = Math.round(payment * EconomyConfig.get().taxRate);
+        long payout = payment - tax;
+        if (!settlement(eco, order, payment, give).debit(requester, payment).credit(fulfiller.getUUID(), payout).commit()) {
+            return new Result(refused(eco, order, payment, give), 0, 0, order.amount, itemProto, order.requester);
         }
 
         sourceStack.shrink(give);
-        long tax = Math.round(payment * EconomyConfig.get().taxRate);
-        long payout = payment - tax;
-        eco.addMoney(fulfiller.getUUID(), payout);
 
         deliver(orders, requester, itemProto, give);
 
+        release(order, payment, give);
         order.amount -= give;
         order.price -= payment;
         int remaining = order.amount;
@@ -126,7 +142,7 @@ public final class OrderFulfillment {
             orders.removeRequest(order.id);
             remaining = 0;
         } else {
-            orders.markChanged();
+            orders.markChanged(order);
         }
 
         notifyRequester(eco.getServer(), requester, give, itemProto);
@@ -139,17 +155,13 @@ public final class OrderFulfillment {
         if (protoPrice == null) return List.of();
 
         List<OrderRequest> out = new ArrayList<>();
-        for (OrderRequest order : eco.getOrders().getRequests()) {
+        for (OrderRequest order : eco.getOrders().bestFirst(prices, protoPrice)) {
+            if (netRatePerUnit(order) <= serverUnitSell) break;
             if (order.amount <= 0 || order.item == null || order.item.isEmpty()) continue;
             if (!order.item.is(proto.getItem())) continue;
             if (seller.equals(order.requester)) continue;
-
-            PriceRegistry.PriceEntry orderPrice = prices.resolve(order.item);
-            if (orderPrice == null || orderPrice != protoPrice) continue;
-
-            if (netRatePerUnit(order) > serverUnitSell) out.add(order);
+            out.add(order);
         }
-        out.sort((a, b) -> Double.compare(netRatePerUnit(b), netRatePerUnit(a)));
         return out;
     }
 
@@ -206,7 +218,34 @@ public final class OrderFulfillment {
         }
     }
 
-    private static void deliver(OrderManager orders, UUID requester, ItemStack proto, int amount) {
+    static EconomyManager.Transaction settlement(EconomyManager eco, OrderRequest order, long payment, int filled) {
+        EconomyManager.Transaction tx = eco.transaction();
+        long released = released(order, payment, filled);
+        return released > 0 ? tx.credit(order.requester, released) : tx;
+    }
+
+    static void release(OrderRequest order, long payment, int filled) {
+        order.escrow = Math.max(0, order.escrow - released(order, payment, filled));
+    }
+
+    private static long released(OrderRequest order, long payment, int filled) {
+        if (filled >= order.amount) return Math.max(0, order.escrow);
+        return order.isFunded() ? payment : 0;
+    }
+
+    private static Status refused(EconomyManager eco, OrderRequest order, long payment, int filled) {
+        long after = eco.getBalance(order.requester) + released(order, payment, filled) - payment;
+        return after > EconomyManager.MAX ? Status.REQUESTER_BALANCE_FULL : Status.REQUESTER_CANT_PAY;
+    }
+
+    private static boolean refundEscrow(EconomyManager eco, OrderRequest order) {
+        if (order.escrow <= 0) return true;
+        if (!eco.transaction().credit(order.requester, order.escrow).commit()) return false;
+        order.escrow = 0;
+        return true;
+    }
+
+    static void deliver(OrderManager orders, UUID requester, ItemStack proto, int amount) {
         int remaining = amount;
         while (remaining > 0) {
             int c = Math.min(proto.getMaxStackSize(), remaining);
@@ -215,7 +254,7 @@ public final class OrderFulfillment {
         }
     }
 
-    private static void notifyRequester(MinecraftServer server, UUID requester, int amount, ItemStack item) {
+    static void notifyRequester(MinecraftServer server, UUID requester, int amount, ItemStack item) {
         ServerPlayer requesterPlayer = server.getPlayerList().getPlayer(requester);
         if (requesterPlayer == null) return;
 
@@ -2,28 +2,37 @@ package com.reazip.economycraft.orders;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.mojang.logging.LogUtils;
 import com.reazip.economycraft.DeliveryManager;
-import com.reazip.economycraft.util.AsyncFileWriter;
+import com.reazip.economycraft.EconomyConfig;
+import com.reazip.economycraft.PriceRegistry;
+import com.reazip.economycraft.util.AtomicFiles;
+import com.reazip.economycraft.util.ChangeBus;
 import com.reazip.economycraft.util.EconomyPaths;
+import com.reazip.economycraft.util.ExpiryWheel;
+import com.reazip.economycraft.util.PersistenceScheduler;
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.core.HolderLookup;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.world.item.ItemStack;
 import org.slf4j.Logger;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class OrderManager {
+public class OrderManager implements PersistenceScheduler.Persistable {
     private static final Logger LOGGER = LogUtils.getLogger();
     private static final Gson GSON = new Gson();
     private final MinecraftServer server;
     private final Path file;
     private final Map<Integer, OrderRequest> requests = new ConcurrentHashMap<>();
     private final DeliveryManager deliveries;
-    private final List<Runnable> listeners = new ArrayList<>();
+    private final ChangeBus changes = new ChangeBus();
+    private final OrderBook book = new OrderBook();
+    private final ExpiryWheel expiry = new ExpiryWheel(System.currentTimeMillis());
     private int nextId = 1;
 
     public OrderManager(MinecraftServer server, DeliveryManager deliveries) {
@@ -43,24 +52,67 @@ public class OrderManager {
         return requests.get(id);
     }
 
+    public Collection<OrderRequest> allRequests() {
+        return Collections.unmodifiableCollection(requests.values());
+    }
+
+    public int nextId() {
+        return nextId;
+    }
+
+    public Iterable<OrderRequest> bestFirst(PriceRegistry prices, PriceRegistry.PriceEntry entry) {
+        return book.bestFirst(prices, entry, requests.values());
+    }
+
     public void addRequest(OrderRequest r) {
         r.id = nextId++;
+        r.createdAt = System.currentTimeMillis();
+        r.expiresAt = ExpiryWheel.deadline(r.createdAt, EconomyConfig.get().orderExpiryDays);
         requests.put(r.id, r);
-        notifyListeners();
+        book.add(r);
+        expiry.schedule(r.id, r.expiresAt);
+        changes.markDirty(r.id);
         save();
     }
 
     public OrderRequest removeRequest(int id) {
         OrderRequest r = requests.remove(id);
         if (r != null) {
-            notifyListeners();
+            book.remove(r);
+            expiry.cancel(id);
+            changes.markDirty(id);
             save();
         }
         return r;
     }
 
-    public void markChanged() {
-        notifyListeners();
+    public List<OrderRequest> expire(long now) {
+        IntList ids = expiry.advance(now);
+        if (ids.isEmpty()) return List.of();
+        List<OrderRequest> expired = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            OrderRequest r = requests.remove(ids.getInt(i));
+            if (r == null) continue;
+            book.remove(r);
+            changes.markDirty(r.id);
+            expired.add(r);
+        }
+        save();
+        return expired;
+    }
+
+    public void retain(OrderRequest r, long retryAt) {
+        r.expiresAt = retryAt;
+        requests.put(r.id, r);
+        book.add(r);
+        expiry.schedule(r.id, r.expiresAt);
+        changes.markDirty(r.id);
+        save();
+    }
+
+    public void markChanged(OrderRequest r) {
+        book.update(r);
+        changes.markDirty(r.id);
         save();
     }
 
@@ -69,10 +121,12 @@ public class OrderManager {
     }
 
     public void load() {
-        if (Files.exists(file)) {
+        long now = System.currentTimeMillis();
+        boolean stamped = false;
+        JsonElement parsed = AtomicFiles.readJson(file);
+        if (parsed != null) {
             try {
-                String json = Files.readString(file);
-                JsonObject root = GSON.fromJson(json, JsonObject.class);
+                JsonObject root = parsed.getAsJsonObject();
                 nextId = root.get("nextId").getAsInt();
                 for (var el : root.getAsJsonArray("requests")) {
                     try {
@@ -81,7 +135,13 @@ public class OrderManager {
                             LOGGER.error("[EconomyCraft] Dropping order request {} with an unreadable item in {}", r.id, file);
                             continue;
                         }
+                        if (r.createdAt <= 0) {
+                            r.createdAt = now;
+                            r.expiresAt = ExpiryWheel.deadline(now, EconomyConfig.get().orderExpiryDays);
+                            stamped = true;
+                        }
                         requests.put(r.id, r);
+                        expiry.schedule(r.id, r.expiresAt);
                     } catch (Exception ex) {
                         LOGGER.error("[EconomyCraft] Dropping an unreadable order request in {}", file, ex);
                     }
@@ -90,30 +150,47 @@ public class OrderManager {
                 LOGGER.error("[EconomyCraft] Failed to load {}", file, ex);
             }
         }
+        if (stamped) save();
     }
 
     public void save() {
-        JsonObject root = new JsonObject();
-        root.addProperty("nextId", nextId);
-        JsonArray reqArr = new JsonArray();
+        PersistenceScheduler.markDirty(this);
+    }
+
+    @Override
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public PersistenceScheduler.Encoder snapshot() {
+        int savedNextId = nextId;
+        List<OrderRequest> copies = new ArrayList<>(requests.size());
         for (OrderRequest r : requests.values()) {
-            reqArr.add(r.save(server.registryAccess()));
+            copies.add(r.copy());
         }
-        root.add("requests", reqArr);
-        AsyncFileWriter.writeAsync(file, GSON.toJson(root));
+        HolderLookup.Provider provider = server.registryAccess();
+        return () -> {
+            JsonObject root = new JsonObject();
+            root.addProperty("nextId", savedNextId);
+            JsonArray reqArr = new JsonArray();
+            for (OrderRequest r : copies) {
+                reqArr.add(r.save(provider));
+            }
+            root.add("requests", reqArr);
+            return GSON.toJson(root);
+        };
     }
 
-    public void addListener(Runnable run) {
-        listeners.add(run);
+    public void addListener(ChangeBus.Listener listener) {
+        changes.subscribe(listener);
     }
 
-    public void removeListener(Runnable run) {
-        listeners.remove(run);
+    public void removeListener(ChangeBus.Listener listener) {
+        changes.unsubscribe(listener);
     }
 
-    private void notifyListeners() {
-        for (Runnable r : new ArrayList<>(listeners)) {
-            r.run();
-        }
+    public void flushChanges() {
+        changes.flush();
     }
 }
@@ -0,0 +1,184 @@
+package com.reazip.economycraft.orders;
+
+import com.reazip.economycraft.EconomyConfig;
+import com.reazip.economycraft.EconomyCraft;
+import com.reazip.economycraft.EconomyManager;
+import com.reazip.economycraft.shop.ShopListing;
+import com.reazip.economycraft.shop.ShopManager;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public final class OrderMatcher {
+    private static final Comparator<ShopListing> BEST_ASK = Comparator.comparingDouble(OrderMatcher::unitAsk)
+            .thenComparingInt(l -> l.id);
+    private static final Comparator<OrderRequest> BEST_BID = Comparator.comparingDouble(OrderMatcher::unitBid).reversed()
+            .thenComparingInt(r -> r.id);
+
+    private final EconomyManager eco;
+    private int seenListing;
+    private int seenOrder;
+
+    public OrderMatcher(EconomyManager eco) {
+        this.eco = eco;
+        this.seenListing = eco.getShop().nextId();
+        this.seenOrder = eco.getOrders().nextId();
+    }
+
+    public void tick() {
+        EconomyConfig config = EconomyConfig.get();
+        if (!config.shopEnabled || !config.ordersEnabled) return;
+
+        ShopManager shop = eco.getShop();
+        OrderManager orders = eco.getOrders();
+        int firstListing = seenListing;
+        int firstOrder = seenOrder;
+        seenListing = shop.nextId();
+        seenOrder = orders.nextId();
+        if (firstListing == seenListing && firstOrder == seenOrder) return;
+
+        Int2ObjectMap<List<Market>> markets = new Int2ObjectOpenHashMap<>();
+        for (int id = firstListing; id < seenListing; id++) {
+            ShopListing listing = shop.getListing(id);
+            if (listing != null) market(markets, listing.item, true);
+        }
+        for (int id = firstOrder; id < seenOrder; id++) {
+            OrderRequest order = orders.getRequest(id);
+            if (order != null) market(markets, order.item, true);
+        }
+        if (markets.isEmpty()) return;
+
+        for (ShopListing listing : shop.allListings()) {
+            Market m = market(markets, listing.item, false);
+            if (m != null) m.asks.add(listing);
+        }
+        for (OrderRequest order : orders.allRequests()) {
+            Market m = market(markets, order.item, false);
+            if (m != null && order.isFunded()) m.bids.add(order);
+        }
+
+        double taxRate = config.taxRate;
+        for (List<Market> bucket : markets.values()) {
+            for (Market m : bucket) {
+                if (m.asks.isEmpty() || m.bids.isEmpty()) continue;
+                m.asks.sort(BEST_ASK);
+                m.bids.sort(BEST_BID);
+                match(m, taxRate, firstListing, firstOrder);
+            }
+        }
+    }
+
+    private void match(Market m, double taxRate, int firstListing, int firstOrder) {
+        for (OrderRequest bid : m.bids) {
+            for (ShopListing ask : m.asks) {
+                if (bid.amount <= 0) break;
+                if (ask.item.isEmpty() || ask.seller == null || ask.seller.equals(bid.requester)) continue;
+                if (unitBid(bid) * (1.0 - taxRate) < unitAsk(ask)) break;
+                boolean atAsk = ask.id < firstListing || bid.id >= firstOrder;
+                if (!fill(bid, ask, atAsk, taxRate)) break;
+            }
+        }
+    }
+
+    private boolean fill(OrderRequest bid, ShopListing ask, boolean atAsk, double taxRate) {
+        int count = ask.item.getCount();
+        int q = Math.min(bid.amount, count);
+        long bidShare = share(bid.price, q, bid.amount);
+        long askShare = share(ask.price, q, count);
+
+        long paid;
+        long received;
+        if (atAsk) {
+            received = askShare;
+            paid = askShare + Math.round(askShare * taxRate);
+        } else {
+            paid = bidShare;
+            received = bidShare - Math.round(bidShare * taxRate);
+        }
+        if (!OrderFulfillment.settlement(eco, bid, bidShare, q).debit(bid.requester, paid).credit(ask.seller, received).commit()) {
+            return false;
+        }
+
+        ItemStack proto = ask.item.copyWithCount(1);
+        ask.item.shrink(q);
+        ask.price -= askShare;
+        OrderFulfillment.release(bid, bidShare, q);
+        bid.amount -= q;
+        bid.price -= bidShare;
+
+        OrderManager orders = eco.getOrders();
+        ShopManager shop = eco.getShop();
+        OrderFulfillment.deliver(orders, bid.requester, proto, q);
+        if (ask.item.isEmpty()) {
+            shop.removeListing(ask.id);
+        } else {
+            shop.markChanged(ask);
+        }
+        if (bid.amount <= 0) {
+            orders.removeRequest(bid.id);
+        } else {
+            orders.markChanged(bid);
+        }
+
+        OrderFulfillment.notifyRequester(eco.getServer(), bid.requester, q, proto);
+        ServerPlayer seller = eco.getServer().getPlayerList().getPlayer(ask.seller);
+        if (seller != null) {
+            seller.sendSystemMessage(Component.literal("Sold " + q + "x " + proto.getHoverName().getString()
+                            + " to an open order for " + EconomyCraft.formatMoney(received))
+                    .withStyle(ChatFormatting.GREEN));
+        }
+        return true;
+    }
+
+    @Nullable
+    private static Market market(Int2ObjectMap<List<Market>> markets, ItemStack stack, boolean create) {
+        if (stack == null || stack.isEmpty()) return null;
+        int hash = ItemStack.hashItemAndComponents(stack);
+        List<Market> bucket = markets.get(hash);
+        if (bucket != null) {
+            for (Market m : bucket) {
+                if (ItemStack.isSameItemSameComponents(m.proto, stack)) return m;
+            }
+        }
+        if (!create) return null;
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            markets.put(hash, bucket);
+        }
+        Market m = new Market(stack);
+        bucket.add(m);
+        return m;
+    }
+
+    private static long share(long total, int part, int whole) {
+        if (whole <= 0) return 0;
+        return Math.min(Math.round((double) total * part / whole), total);
+    }
+
+    private static double unitAsk(ShopListing listing) {
+        int count = listing.item.getCount();
+        return count <= 0 ? Double.MAX_VALUE : listing.price / (double) count;
+    }
+
+    private static double unitBid(OrderRequest order) {
+        return order.amount <= 0 ? 0 : order.price / (double) order.amount;
+    }
+
+    private static final class Market {
+        final ItemStack proto;
+        final List<ShopListing> asks = new ArrayList<>();
+        final List<OrderRequest> bids = new ArrayList<>();
+
+        Market(ItemStack proto) {
+            this.proto = proto;
+        }
+    }
+}
@@ -15,13 +15,36 @@ public class OrderRequest {
     public ItemStack item;
     public int amount;
     public long price;
+    public long createdAt;
+    public long expiresAt;
+    public long escrow;
+
+    public boolean isFunded() {
+        return escrow >= price;
+    }
+
+    public OrderRequest copy() {
+        OrderRequest r = new OrderRequest();
+        r.id = id;
+        r.requester = requester;
+        r.item = item == null ? ItemStack.EMPTY : item.copy();
+        r.amount = amount;
+        r.price = price;
+        r.createdAt = createdAt;
+        r.expiresAt = expiresAt;
+        r.escrow = escrow;
+        return r;
+    }
 
     public JsonObject save(HolderLookup.Provider provider) {
         JsonObject obj = new JsonObject();
         obj.addProperty("id", id);
         if (requester != null) obj.addProperty("requester", requester.toString());
         obj.addProperty("price", price);
+        if (createdAt > 0) obj.addProperty("created", createdAt);
+        if (expiresAt > 0) obj.addProperty("expires", expiresAt);
         obj.addProperty("amount", amount);
+        if (escrow > 0) obj.addProperty("escrow", escrow);
         JsonElement stackEl = ItemStack.CODEC.encodeStart(RegistryOps.create(JsonOps.INSTANCE, provider), item).result().orElse(new JsonObject());
         obj.add("stack", stackEl);
         return obj;
@@ -32,7 +55,10 @@ public class OrderRequest {
         r.id = obj.get("id").getAsInt();
         if (obj.has("requester")) r.requester = UUID.fromString(obj.get("requester").getAsString());
         r.price = obj.get("price").getAsLong();
+        if (obj.has("created")) r.createdAt = obj.get("created").getAsLong();
+        if (obj.has("expires")) r.expiresAt = obj.get("expires").getAsLong();
         r.amount = obj.get("amount").getAsInt();
+        if (obj.has("escrow")) r.escrow = obj.get("escrow").getAsLong();
         r.item = ItemStack.CODEC.parse(RegistryOps.create(JsonOps.INSTANCE, provider), obj.get("stack")).result().orElse(ItemStack.EMPTY);
         return r;
     }
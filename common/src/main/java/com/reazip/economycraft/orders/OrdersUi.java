@@ -5,6 +5,7 @@ import com.reazip.economycraft.EconomyCraft;
 import com.reazip.economycraft.EconomyManager;
 import com.reazip.economycraft.HubUi;
 import com.reazip.economycraft.SellService;
+import com.reazip.economycraft.util.ChangeBus;
 import com.reazip.economycraft.util.ClickKind;
 import com.reazip.economycraft.util.CompatMenu;
 import com.reazip.economycraft.util.ContainerPreviewUi;
@@ -14,6 +15,11 @@ import com.reazip.economycraft.util.MenuUiSupport;
 import com.reazip.economycraft.util.NumberInputUi;
 import com.reazip.economycraft.util.SortMode;
 import com.reazip.economycraft.util.TextInputUi;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import net.minecraft.ChatFormatting;
 import net.minecraft.core.component.DataComponents;
 import net.minecraft.network.chat.Component;
@@ -90,7 +96,7 @@ public final class OrdersUi {
 
     private static List<Component> requestLore(ServerPlayer player, EconomyManager eco, int amount, long price) {
         long tax = Math.round(price * EconomyConfig.get().taxRate);
-        long balance = eco.getBalance(player.getUUID(), true);
+        long balance = eco.getBalance(player.getUUID());
 
         List<Component> lore = new ArrayList<>();
         lore.add(MenuUiSupport.labeledValue("Amount", String.valueOf(amount), MenuUiSupport.LABEL_PRIMARY_COLOR));
@@ -98,7 +104,7 @@ public final class OrdersUi {
         lore.add(MenuUiSupport.labeledValue("Per item", EconomyCraft.formatMoney(price / Math.max(1, amount)),
                 MenuUiSupport.LABEL_PRIMARY_COLOR));
         lore.add(createRewardLore(price, tax));
-        lore.add(MenuUiSupport.hint("You are charged as the order is filled."));
+        lore.add(MenuUiSupport.hint("The full reward is held from your balance until the order is filled or removed."));
         if (balance < price) {
             lore.add(MenuUiSupport.line("Your balance (" + EconomyCraft.formatMoney(balance) + ") is lower than this.",
                     ChatFormatting.RED));
@@ -112,7 +118,11 @@ public final class OrdersUi {
         request.price = price;
         request.item = prototype.copyWithCount(1);
         request.amount = amount;
-        eco.getOrders().addRequest(request);
+        if (!OrderFulfillment.post(eco, request)) {
+            player.sendSystemMessage(Component.literal("You can't afford to post this request").withStyle(ChatFormatting.RED));
+            open(player, eco);
+            return;
+        }
 
         long tax = Math.round(price * EconomyConfig.get().taxRate);
         player.sendSystemMessage(Component.literal("Requested " + amount + "x "
@@ -135,7 +145,8 @@ public final class OrdersUi {
         private final int itemsPerPage;
         private final int navRowStart;
         private int page;
-        private final Runnable listener = this::updatePage;
+        private final Int2IntOpenHashMap positions = new Int2IntOpenHashMap();
+        private final ChangeBus.Listener listener = this::onOrdersChanged;
 
         RequestMenu(int id, Inventory inv, OrderManager orders, EconomyManager eco, ServerPlayer viewer, int page,
                     @Nullable String query, SortMode sort, boolean mineOnly) {
@@ -158,6 +169,8 @@ public final class OrdersUi {
             this.navRowStart = itemsPerPage;
             this.container = new SimpleContainer(rows * 9);
             this.requests = resolved;
+            this.positions.defaultReturnValue(-1);
+            indexPositions();
             renderPage();
             orders.addListener(listener);
             for (Slot slot : MenuUiSupport.readOnlyGridSlots(container, rows * 9)) {
@@ -171,12 +184,7 @@ public final class OrdersUi {
         private static List<OrderRequest> resolveRequests(OrderManager orders, @Nullable String query, SortMode sort,
                                                          boolean mineOnly, ServerPlayer viewer) {
             List<OrderRequest> list = new ArrayList<>(orders.getRequests());
-            if (query != null && !query.isBlank()) {
-                list.removeIf(r -> !MenuUiSupport.matchesSearch(r.item, query));
-            }
-            if (mineOnly) {
-                list.removeIf(r -> !viewer.getUUID().equals(r.requester));
-            }
+            list.removeIf(r -> !matches(r, query, mineOnly, viewer));
             if (sort == SortMode.PRICE_ASC) {
                 list.sort(Comparator.comparingLong(r -> r.price));
             } else if (sort == SortMode.PRICE_DESC) {
@@ -185,11 +193,51 @@ public final class OrdersUi {
             return list;
         }
 
+        private static boolean matches(OrderRequest r, @Nullable String query, boolean mineOnly, ServerPlayer viewer) {
+            if (query != null && !query.isBlank() && !MenuUiSupport.matchesSearch(r.item, query)) return false;
+            return !mineOnly || viewer.getUUID().equals(r.requester);
+        }
+
         private void updatePage() {
             requests = resolveRequests(orders, query, sort, mineOnly, viewer);
+            indexPositions();
             renderPage();
         }
 
+        private void indexPositions() {
+            positions.clear();
+            for (int i = 0; i < requests.size(); i++) {
+                positions.put(requests.get(i).id, i);
+            }
+        }
+
+        private void onOrdersChanged(IntSet ids) {
+            int start = page * itemsPerPage;
+            int end = Math.min(start + itemsPerPage, requests.size());
+            IntList patch = new IntArrayList();
+            for (IntIterator it = ids.iterator(); it.hasNext(); ) {
+                int id = it.nextInt();
+                OrderRequest r = orders.getRequest(id);
+                int index = positions.get(id);
+                if (index < 0) {
+                    if (r != null && matches(r, query, mineOnly, viewer)) {
+                        updatePage();
+                        return;
+                    }
+                    continue;
+                }
+                if (r == null || sort != SortMode.DEFAULT || !matches(r, query, mineOnly, viewer)) {
+                    updatePage();
+                    return;
+                }
+                if (index >= start && index < end) patch.add(index);
+            }
+            for (int i = 0; i < patch.size(); i++) {
+                int index = patch.getInt(i);
+                container.setItem(index - start, requestDisplay(requests.get(index)));
+            }
+        }
+
         private void cycleSort() {
             if (mineOnly) {
                 mineOnly = false;
@@ -204,36 +252,35 @@ public final class OrdersUi {
             }
         }
 
+        private ItemStack requestDisplay(OrderRequest r) {
+            ItemStack display = r.item.copy();
+            boolean mine = viewer.getUUID().equals(r.requester);
+            String reqName = MenuUiSupport.resolvePlayerName(viewer.level().getServer(), r.requester);
+
+            long tax = Math.round(r.price * EconomyConfig.get().taxRate);
+            List<Component> lore = new ArrayList<>(List.of(
+                    createRewardLore(r.price, tax),
+                    MenuUiSupport.labeledValue("Amount", String.valueOf(r.amount), MenuUiSupport.LABEL_PRIMARY_COLOR),
+                    MenuUiSupport.labeledValue("Requester", mine ? "you" : reqName, MenuUiSupport.LABEL_PRIMARY_COLOR),
+                    MenuUiSupport.labeledValue("Click", mine ? "Cancel this request" : "Fulfill it",
+                            MenuUiSupport.LABEL_SECONDARY_COLOR)));
+            if (MenuUiSupport.hasContainerContents(r.item)) {
+                lore.add(MenuUiSupport.labeledValue("Ctrl+Q", "Preview contents", MenuUiSupport.LABEL_SECONDARY_COLOR));
+            }
+            display.set(DataComponents.LORE, new ItemLore(lore));
+            display.setCount(1);
+            return display;
+        }
+
         private void renderPage() {
             container.clearContent();
             int start = page * itemsPerPage;
             int totalPages = MenuUiSupport.totalPages(requests.size(), itemsPerPage);
 
-            var server = viewer.level().getServer();
-
             for (int i = 0; i < itemsPerPage; i++) {
                 int index = start + i;
                 if (index >= requests.size()) break;
-
-                OrderRequest r = requests.get(index);
-                ItemStack display = r.item.copy();
-
-                boolean mine = viewer.getUUID().equals(r.requester);
-                String reqName = MenuUiSupport.resolvePlayerName(server, r.requester);
-
-                long tax = Math.round(r.price * EconomyConfig.get().taxRate);
-                List<Component> lore = new ArrayList<>(List.of(
-                        createRewardLore(r.price, tax),
-                        MenuUiSupport.labeledValue("Amount", String.valueOf(r.amount), MenuUiSupport.LABEL_PRIMARY_COLOR),
-                        MenuUiSupport.labeledValue("Requester", mine ? "you" : reqName, MenuUiSupport.LABEL_PRIMARY_COLOR),
-                        MenuUiSupport.labeledValue("Click", mine ? "Cancel this request" : "Fulfill it",
-                                MenuUiSupport.LABEL_SECONDARY_COLOR)));
-                if (MenuUiSupport.hasContainerContents(r.item)) {
-                    lore.add(MenuUiSupport.labeledValue("Ctrl+Q", "Preview contents", MenuUiSupport.LABEL_SECONDARY_COLOR));
-                }
-                display.set(DataComponents.LORE, new ItemLore(lore));
-                display.setCount(1);
-                container.setItem(i, display);
+                container.setItem(i, requestDisplay(requests.get(index)));
             }
 
             if (requests.isEmpty()) {
@@ -425,6 +472,7 @@ public final class OrdersUi {
                                             .withStyle(ChatFormatting.GREEN));
                         }
                         case REQUESTER_CANT_PAY -> serverPlayer.sendSystemMessage(Component.literal("Requester can't pay").withStyle(ChatFormatting.RED));
+                        case REQUESTER_BALANCE_FULL -> serverPlayer.sendSystemMessage(Component.literal("Requester's balance is full").withStyle(ChatFormatting.RED));
                         case OWN_ORDER -> serverPlayer.sendSystemMessage(Component.literal("You cannot fulfill your own request").withStyle(ChatFormatting.RED));
                         default -> serverPlayer.sendSystemMessage(Component.literal("Request no longer available").withStyle(ChatFormatting.RED));
                     }
@@ -481,9 +529,15 @@ public final class OrdersUi {
             if (kind != ClickKind.PICKUP) return false;
 
             if (slot == MenuUiSupport.ROW_CONFIRM) {
-                OrderRequest removed = parent.orders.removeRequest(request.id);
+                long refund = request.escrow;
+                OrderRequest removed = OrderFulfillment.cancel(parent.eco, request.id);
                 if (removed != null) {
-                    ((ServerPlayer) player).sendSystemMessage(Component.literal("Request removed").withStyle(ChatFormatting.GREEN));
+                    ((ServerPlayer) player).sendSystemMessage(Component.literal("Request removed"
+                                    + (refund > 0 ? ", " + EconomyCraft.formatMoney(refund) + " refunded" : ""))
+                            .withStyle(ChatFormatting.GREEN));
+                } else if (parent.eco.getOrders().getRequest(request.id) != null) {
+                    ((ServerPlayer) player).sendSystemMessage(Component.literal("Your balance is too full to take back "
+                            + EconomyCraft.formatMoney(refund) + ", request kept").withStyle(ChatFormatting.RED));
                 } else {
                     ((ServerPlayer) player).sendSystemMessage(Component.literal("Request no longer available").withStyle(ChatFormatting.RED));
                 }
@@ -43,12 +43,14 @@ public final class SellUi {
         private final PriceRegistry prices;
         private final SimpleContainer depositContainer = new SimpleContainer(DEPOSIT_SLOTS);
         private final SimpleContainer navContainer = new SimpleContainer(9);
+        private final SellValuation valuation;
 
         SellMenu(int id, Inventory inv, ServerPlayer viewer, EconomyManager manager) {
             super(MenuType.GENERIC_9x6, id);
             this.viewer = viewer;
             this.manager = manager;
             this.prices = manager.getPrices();
+            this.valuation = new SellValuation(prices, depositContainer);
 
             for (Slot slot : MenuUiSupport.openGridSlots(depositContainer, DEPOSIT_SLOTS,
                     stack -> SellService.sellableResolved(this.prices, stack) != null)) {
@@ -64,27 +66,6 @@ public final class SellUi {
             renderNavRow();
         }
 
-        private record SellPreview(int count, long total) {}
-
-        private SellPreview previewTotals() {
-            int count = 0;
-            long total = 0;
-            for (int i = 0; i < DEPOSIT_SLOTS; i++) {
-                ItemStack stack = depositContainer.getItem(i);
-                if (stack.isEmpty()) continue;
-                if (SellService.sellableResolved(prices, stack) == null) continue;
-                Long unitSell = prices.getUnitSell(stack);
-                if (unitSell == null) continue;
-                Long value = safeMultiply(unitSell, stack.getCount());
-                if (value == null) continue;
-                Long sum = safeAdd(total, value);
-                if (sum == null) continue;
-                total = sum;
-                count += stack.getCount();
-            }
-            return new SellPreview(count, total);
-        }
-
         private void renderNavRow() {
             navContainer.clearContent();
             navContainer.setItem(NAV_BALANCE, MenuUiSupport.createBalanceItem(viewer));
@@ -100,15 +81,23 @@ public final class SellUi {
 
             navContainer.setItem(NAV_MENU, MenuUiSupport.button(Items.NETHER_STAR, "Main menu", ChatFormatting.YELLOW));
 
-            SellPreview preview = previewTotals();
-            navContainer.setItem(NAV_CONFIRM, MenuUiSupport.confirmButton("Confirm",
-                    MenuUiSupport.hint("Sells the items above"),
-                    MenuUiSupport.labeledValue("Items", String.valueOf(preview.count()), MenuUiSupport.LABEL_PRIMARY_COLOR),
-                    MenuUiSupport.labeledValue("Total", EconomyCraft.formatMoney(preview.total()), MenuUiSupport.LABEL_PRIMARY_COLOR)));
+            valuation.refresh();
+            navContainer.setItem(NAV_CONFIRM, confirmButton());
 
             MenuUiSupport.fillFooter(navContainer);
         }
 
+        private void updateTotals() {
+            if (valuation.refresh()) navContainer.setItem(NAV_CONFIRM, confirmButton());
+        }
+
+        private ItemStack confirmButton() {
+            return MenuUiSupport.confirmButton("Confirm",
+                    MenuUiSupport.hint("Sells the items above"),
+                    MenuUiSupport.labeledValue("Items", String.valueOf(valuation.count()), MenuUiSupport.LABEL_PRIMARY_COLOR),
+                    MenuUiSupport.labeledValue("Total", EconomyCraft.formatMoney(valuation.total()), MenuUiSupport.LABEL_PRIMARY_COLOR));
+        }
+
         private void fillFromInventory(Player player) {
             Inventory inv = player.getInventory();
             int moved = 0;
@@ -128,7 +117,7 @@ public final class SellUi {
             if (moved == 0) {
                 viewer.sendSystemMessage(MenuUiSupport.line("Nothing in your inventory can be sold.", ChatFormatting.RED));
             }
-            renderNavRow();
+            updateTotals();
         }
 
         private void performSale(ServerPlayer player) {
@@ -138,12 +127,13 @@ public final class SellUi {
             long serverPayoutTotal = 0;
             int limitBlockedTotal = 0;
 
+            valuation.refresh();
             for (int i = 0; i < DEPOSIT_SLOTS; i++) {
                 ItemStack stack = depositContainer.getItem(i);
                 if (stack.isEmpty()) continue;
-                if (SellService.sellableResolved(prices, stack) == null) continue;
-                Long unitSell = prices.getUnitSell(stack);
-                if (unitSell == null) continue;
+                PriceRegistry.PriceEntry entry = valuation.entry(i);
+                if (entry == null) continue;
+                long unitSell = entry.unitSell();
 
                 SellService.SaleSplit split = SellService.sellHandWithRouting(manager, player, stack, stack.getCount(), unitSell);
                 orderGivenTotal += split.orderGiven();
@@ -212,7 +202,7 @@ public final class SellUi {
 
         @Override
         protected void afterClick(int slot, int dragType, ClickKind kind, Player player) {
-            renderNavRow();
+            updateTotals();
         }
 
         private void rejectUnsellable(Player player, ItemStack stack) {
@@ -256,7 +246,7 @@ public final class SellUi {
             } else {
                 slot.setChanged();
             }
-            renderNavRow();
+            updateTotals();
             return copy;
         }
 
@@ -267,13 +257,5 @@ public final class SellUi {
                 return null;
             }
         }
-
-        private static Long safeAdd(long a, long b) {
-            try {
-                return Math.addExact(a, b);
-            } catch (ArithmeticException ex) {
-                return null;
-            }
-        }
     }
 }
@@ -0,0 +1,87 @@
+package com.reazip.economycraft.sell;
+
+import com.reazip.economycraft.PriceRegistry;
+import com.reazip.economycraft.PriceRegistry.PriceEntry;
+import com.reazip.economycraft.SellService;
+import net.minecraft.world.Container;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+final class SellValuation {
+    private final PriceRegistry prices;
+    private final Container container;
+    private final ItemStack[] seen;
+    private final int[] seenCounts;
+    private final PriceEntry[] entries;
+    private final int[] counted;
+    private final long[] values;
+    private long revision;
+    private int count;
+    private long total;
+
+    SellValuation(PriceRegistry prices, Container container) {
+        this.prices = prices;
+        this.container = container;
+        int size = container.getContainerSize();
+        this.seen = new ItemStack[size];
+        this.seenCounts = new int[size];
+        this.entries = new PriceEntry[size];
+        this.counted = new int[size];
+        this.values = new long[size];
+        this.revision = prices.revision();
+    }
+
+    boolean refresh() {
+        long current = prices.revision();
+        if (current != revision) {
+            revision = current;
+            Arrays.fill(seen, null);
+        }
+
+        boolean changed = false;
+        for (int i = 0; i < seen.length; i++) {
+            ItemStack stack = container.getItem(i);
+            if (stack == seen[i] && stack.getCount() == seenCounts[i]) continue;
+            if (stack != seen[i]) {
+                entries[i] = SellService.sellableResolved(prices, stack);
+                seen[i] = stack;
+            }
+            seenCounts[i] = stack.getCount();
+            changed |= revalue(i);
+        }
+        return changed;
+    }
+
+    @Nullable
+    PriceEntry entry(int slot) {
+        return entries[slot];
+    }
+
+    int count() {
+        return count;
+    }
+
+    long total() {
+        return total;
+    }
+
+    private boolean revalue(int slot) {
+        PriceEntry entry = entries[slot];
+        int items = 0;
+        long value = 0;
+        if (entry != null && seenCounts[slot] > 0) {
+            try {
+                value = Math.multiplyExact(entry.unitSell(), seenCounts[slot]);
+                items = seenCounts[slot];
+            } catch (ArithmeticException ignored) {}
+        }
+        if (items == counted[slot] && value == values[slot]) return false;
+        count += items - counted[slot];
+        total += value - values[slot];
+        counted[slot] = items;
+        values[slot] = value;
+        return true;
+    }
+}
@@ -536,7 +536,7 @@ public final class ServerShopUi {
                 return;
             }
 
-            long balance = eco.getBalance(viewer.getUUID(), true);
+            long balance = eco.getBalance(viewer.getUUID());
             if (balance < total) {
                 viewer.sendSystemMessage(Component.literal("Not enough balance.")
                         .withStyle(ChatFormatting.RED));
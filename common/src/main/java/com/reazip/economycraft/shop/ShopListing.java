@@ -14,12 +14,27 @@ public class ShopListing {
     public UUID seller;
     public ItemStack item;
     public long price;
+    public long createdAt;
+    public long expiresAt;
+
+    public ShopListing copy() {
+        ShopListing l = new ShopListing();
+        l.id = id;
+        l.seller = seller;
+        l.item = item == null ? ItemStack.EMPTY : item.copy();
+        l.price = price;
+        l.createdAt = createdAt;
+        l.expiresAt = expiresAt;
+        return l;
+    }
 
     public JsonObject save(HolderLookup.Provider provider) {
         JsonObject obj = new JsonObject();
         obj.addProperty("id", id);
         if (seller != null) obj.addProperty("seller", seller.toString());
         obj.addProperty("price", price);
+        if (createdAt > 0) obj.addProperty("created", createdAt);
+        if (expiresAt > 0) obj.addProperty("expires", expiresAt);
         JsonElement stackEl = ItemStack.CODEC.encodeStart(RegistryOps.create(JsonOps.INSTANCE, provider), item).result().orElse(new JsonObject());
         obj.add("stack", stackEl);
         return obj;
@@ -30,6 +45,8 @@ public class ShopListing {
         l.id = obj.get("id").getAsInt();
         if (obj.has("seller")) l.seller = UUID.fromString(obj.get("seller").getAsString());
         l.price = obj.get("price").getAsLong();
+        if (obj.has("created")) l.createdAt = obj.get("created").getAsLong();
+        if (obj.has("expires")) l.expiresAt = obj.get("expires").getAsLong();
         l.item = ItemStack.CODEC
                 .parse(RegistryOps.create(JsonOps.INSTANCE, provider), obj.get("stack"))
                 .result()
@@ -2,33 +2,40 @@ package com.reazip.economycraft.shop;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.mojang.logging.LogUtils;
 import com.reazip.economycraft.DeliveryManager;
+import com.reazip.economycraft.EconomyConfig;
 import com.reazip.economycraft.EconomyCraft;
-import com.reazip.economycraft.util.AsyncFileWriter;
+import com.reazip.economycraft.util.AtomicFiles;
+import com.reazip.economycraft.util.ChangeBus;
 import com.reazip.economycraft.util.EconomyPaths;
+import com.reazip.economycraft.util.ExpiryWheel;
 import com.reazip.economycraft.util.IdentityCompat;
+import com.reazip.economycraft.util.PersistenceScheduler;
+import it.unimi.dsi.fastutil.ints.IntList;
 import net.minecraft.ChatFormatting;
+import net.minecraft.core.HolderLookup;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.item.ItemStack;
 import org.slf4j.Logger;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class ShopManager {
+public class ShopManager implements PersistenceScheduler.Persistable {
     private static final Logger LOGGER = LogUtils.getLogger();
     private static final Gson GSON = new Gson();
     private final MinecraftServer server;
     private final Path file;
     private final Map<Integer, ShopListing> listings = new ConcurrentHashMap<>();
     private final DeliveryManager deliveries;
-    private final List<Runnable> listeners = new ArrayList<>();
+    private final ChangeBus changes = new ChangeBus();
+    private final ExpiryWheel expiry = new ExpiryWheel(System.currentTimeMillis());
     private int nextId = 1;
 
     public ShopManager(MinecraftServer server, DeliveryManager deliveries) {
@@ -48,22 +55,53 @@ public class ShopManager {
         return listings.get(id);
     }
 
+    public Collection<ShopListing> allListings() {
+        return Collections.unmodifiableCollection(listings.values());
+    }
+
+    public int nextId() {
+        return nextId;
+    }
+
     public void addListing(ShopListing listing) {
         listing.id = nextId++;
+        listing.createdAt = System.currentTimeMillis();
+        listing.expiresAt = ExpiryWheel.deadline(listing.createdAt, EconomyConfig.get().listingExpiryDays);
         listings.put(listing.id, listing);
-        notifyListeners();
+        expiry.schedule(listing.id, listing.expiresAt);
+        changes.markDirty(listing.id);
         save();
     }
 
     public ShopListing removeListing(int id) {
         ShopListing l = listings.remove(id);
         if (l != null) {
-            notifyListeners();
+            expiry.cancel(id);
+            changes.markDirty(id);
             save();
         }
         return l;
     }
 
+    public List<ShopListing> expire(long now) {
+        IntList ids = expiry.advance(now);
+        if (ids.isEmpty()) return List.of();
+        List<ShopListing> expired = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            ShopListing l = listings.remove(ids.getInt(i));
+            if (l == null) continue;
+            changes.markDirty(l.id);
+            expired.add(l);
+        }
+        save();
+        return expired;
+    }
+
+    public void markChanged(ShopListing listing) {
+        changes.markDirty(listing.id);
+        save();
+    }
+
     public void notifySellerSale(ShopListing listing, ServerPlayer buyer) {
         if (listing == null || buyer == null) return;
 
@@ -96,10 +134,12 @@ public class ShopManager {
     }
 
     public void load() {
-        if (Files.exists(file)) {
+        long now = System.currentTimeMillis();
+        boolean stamped = false;
+        JsonElement parsed = AtomicFiles.readJson(file);
+        if (parsed != null) {
             try {
-                String json = Files.readString(file);
-                JsonObject root = GSON.fromJson(json, JsonObject.class);
+                JsonObject root = parsed.getAsJsonObject();
                 nextId = root.get("nextId").getAsInt();
                 for (var el : root.getAsJsonArray("listings")) {
                     try {
@@ -108,7 +148,13 @@ public class ShopManager {
                             LOGGER.error("[EconomyCraft] Dropping shop listing {} with an unreadable item in {}", l.id, file);
                             continue;
                         }
+                        if (l.createdAt <= 0) {
+                            l.createdAt = now;
+                            l.expiresAt = ExpiryWheel.deadline(now, EconomyConfig.get().listingExpiryDays);
+                            stamped = true;
+                        }
                         listings.put(l.id, l);
+                        expiry.schedule(l.id, l.expiresAt);
                     } catch (Exception ex) {
                         LOGGER.error("[EconomyCraft] Dropping an unreadable shop listing in {}", file, ex);
                     }
@@ -117,30 +163,47 @@ public class ShopManager {
                 LOGGER.error("[EconomyCraft] Failed to load {}", file, ex);
             }
         }
+        if (stamped) save();
     }
 
     public void save() {
-        JsonObject root = new JsonObject();
-        root.addProperty("nextId", nextId);
-        JsonArray listArr = new JsonArray();
+        PersistenceScheduler.markDirty(this);
+    }
+
+    @Override
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public PersistenceScheduler.Encoder snapshot() {
+        int savedNextId = nextId;
+        List<ShopListing> copies = new ArrayList<>(listings.size());
         for (ShopListing l : listings.values()) {
-            listArr.add(l.save(server.registryAccess()));
+            copies.add(l.copy());
         }
-        root.add("listings", listArr);
-        AsyncFileWriter.writeAsync(file, GSON.toJson(root));
+        HolderLookup.Provider provider = server.registryAccess();
+        return () -> {
+            JsonObject root = new JsonObject();
+            root.addProperty("nextId", savedNextId);
+            JsonArray listArr = new JsonArray();
+            for (ShopListing l : copies) {
+                listArr.add(l.save(provider));
+            }
+            root.add("listings", listArr);
+            return GSON.toJson(root);
+        };
     }
 
-    public void addListener(Runnable run) {
-        listeners.add(run);
+    public void addListener(ChangeBus.Listener listener) {
+        changes.subscribe(listener);
     }
 
-    public void removeListener(Runnable run) {
-        listeners.remove(run);
+    public void removeListener(ChangeBus.Listener listener) {
+        changes.unsubscribe(listener);
     }
 
-    private void notifyListeners() {
-        for (Runnable r : new ArrayList<>(listeners)) {
-            r.run();
-        }
+    public void flushChanges() {
+        changes.flush();
     }
 }
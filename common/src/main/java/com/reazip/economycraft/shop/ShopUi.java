@@ -5,6 +5,7 @@ import com.reazip.economycraft.EconomyCraft;
 import com.reazip.economycraft.EconomyManager;
 import com.reazip.economycraft.HubUi;
 import com.reazip.economycraft.orders.OrdersUi;
+import com.reazip.economycraft.util.ChangeBus;
 import com.reazip.economycraft.util.ChatCompat;
 import com.reazip.economycraft.util.ClickKind;
 import com.reazip.economycraft.util.CompatMenu;
@@ -14,6 +15,11 @@ import com.reazip.economycraft.util.MenuUiSupport;
 import com.reazip.economycraft.util.NumberInputUi;
 import com.reazip.economycraft.util.SortMode;
 import com.reazip.economycraft.util.TextInputUi;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import net.minecraft.ChatFormatting;
 import net.minecraft.core.component.DataComponents;
 import net.minecraft.network.chat.ClickEvent;
@@ -62,7 +68,7 @@ public final class ShopUi {
 
     private static boolean canAfford(ServerPlayer player, long price) {
         long total = price + Math.round(price * EconomyConfig.get().taxRate);
-        return EconomyCraft.getManager(player.level().getServer()).getBalance(player.getUUID(), true) >= total;
+        return EconomyCraft.getManager(player.level().getServer()).getBalance(player.getUUID()) >= total;
     }
 
     private static Component createPriceLore(long price, long tax) {
@@ -196,7 +202,8 @@ public final class ShopUi {
         private final int itemsPerPage;
         private final int navRowStart;
         private int page;
-        private final Runnable listener = this::updatePage;
+        private final Int2IntOpenHashMap positions = new Int2IntOpenHashMap();
+        private final ChangeBus.Listener listener = this::onListingsChanged;
 
         ShopMenu(int id, Inventory inv, ShopManager shop, ServerPlayer viewer, int page, @Nullable String query,
                  SortMode sort, boolean mineOnly) {
@@ -217,6 +224,8 @@ public final class ShopUi {
             this.navRowStart = itemsPerPage;
             this.container = new SimpleContainer(rows * 9);
             this.listings = resolved;
+            this.positions.defaultReturnValue(-1);
+            indexPositions();
             renderPage();
             shop.addListener(listener);
             for (Slot slot : MenuUiSupport.readOnlyGridSlots(container, rows * 9)) {
@@ -230,12 +239,7 @@ public final class ShopUi {
         private static List<ShopListing> resolveListings(ShopManager shop, @Nullable String query, SortMode sort,
                                                         boolean mineOnly, ServerPlayer viewer) {
             List<ShopListing> list = new ArrayList<>(shop.getListings());
-            if (query != null && !query.isBlank()) {
-                list.removeIf(l -> !MenuUiSupport.matchesSearch(l.item, query));
-            }
-            if (mineOnly) {
-                list.removeIf(l -> !viewer.getUUID().equals(l.seller));
-            }
+            list.removeIf(l -> !matches(l, query, mineOnly, viewer));
             if (sort == SortMode.PRICE_ASC) {
                 list.sort(Comparator.comparingLong(l -> l.price));
             } else if (sort == SortMode.PRICE_DESC) {
@@ -244,11 +248,51 @@ public final class ShopUi {
             return list;
         }
 
+        private static boolean matches(ShopListing l, @Nullable String query, boolean mineOnly, ServerPlayer viewer) {
+            if (query != null && !query.isBlank() && !MenuUiSupport.matchesSearch(l.item, query)) return false;
+            return !mineOnly || viewer.getUUID().equals(l.seller);
+        }
+
         private void updatePage() {
             listings = resolveListings(shop, query, sort, mineOnly, viewer);
+            indexPositions();
             renderPage();
         }
 
+        private void indexPositions() {
+            positions.clear();
+            for (int i = 0; i < listings.size(); i++) {
+                positions.put(listings.get(i).id, i);
+            }
+        }
+
+        private void onListingsChanged(IntSet ids) {
+            int start = page * itemsPerPage;
+            int end = Math.min(start + itemsPerPage, listings.size());
+            IntList patch = new IntArrayList();
+            for (IntIterator it = ids.iterator(); it.hasNext(); ) {
+                int id = it.nextInt();
+                ShopListing l = shop.getListing(id);
+                int index = positions.get(id);
+                if (index < 0) {
+                    if (l != null && matches(l, query, mineOnly, viewer)) {
+                        updatePage();
+                        return;
+                    }
+                    continue;
+                }
+                if (l == null || sort != SortMode.DEFAULT || !matches(l, query, mineOnly, viewer)) {
+                    updatePage();
+                    return;
+                }
+                if (index >= start && index < end) patch.add(index);
+            }
+            for (int i = 0; i < patch.size(); i++) {
+                int index = patch.getInt(i);
+                container.setItem(index - start, listingDisplay(listings.get(index)));
+            }
+        }
+
         private void cycleSort() {
             if (mineOnly) {
                 mineOnly = false;
@@ -263,6 +307,24 @@ public final class ShopUi {
             }
         }
 
+        private ItemStack listingDisplay(ShopListing l) {
+            ItemStack display = l.item.copy();
+
+            String sellerName = MenuUiSupport.resolvePlayerName(viewer.level().getServer(), l.seller);
+            boolean mine = viewer.getUUID().equals(l.seller);
+
+            long tax = Math.round(l.price * EconomyConfig.get().taxRate);
+            List<Component> lore = new ArrayList<>();
+            lore.add(createPriceLore(l.price, tax));
+            lore.add(MenuUiSupport.labeledValue("Seller", mine ? "you" : sellerName, MenuUiSupport.LABEL_PRIMARY_COLOR));
+            lore.add(MenuUiSupport.labeledValue("Click", mine ? "Take it back" : "Buy it", MenuUiSupport.LABEL_SECONDARY_COLOR));
+            if (MenuUiSupport.hasContainerContents(l.item)) {
+                lore.add(MenuUiSupport.labeledValue("Ctrl+Q", "Preview contents", MenuUiSupport.LABEL_SECONDARY_COLOR));
+            }
+            display.set(DataComponents.LORE, new ItemLore(lore));
+            return display;
+        }
+
         private void renderPage() {
             container.clearContent();
             int start = page * itemsPerPage;
@@ -271,23 +333,7 @@ public final class ShopUi {
             for (int i = 0; i < itemsPerPage; i++) {
                 int idx = start + i;
                 if (idx >= listings.size()) break;
-
-                ShopListing l = listings.get(idx);
-                ItemStack display = l.item.copy();
-
-                String sellerName = MenuUiSupport.resolvePlayerName(viewer.level().getServer(), l.seller);
-                boolean mine = viewer.getUUID().equals(l.seller);
-
-                long tax = Math.round(l.price * EconomyConfig.get().taxRate);
-                List<Component> lore = new ArrayList<>();
-                lore.add(createPriceLore(l.price, tax));
-                lore.add(MenuUiSupport.labeledValue("Seller", mine ? "you" : sellerName, MenuUiSupport.LABEL_PRIMARY_COLOR));
-                lore.add(MenuUiSupport.labeledValue("Click", mine ? "Take it back" : "Buy it", MenuUiSupport.LABEL_SECONDARY_COLOR));
-                if (MenuUiSupport.hasContainerContents(l.item)) {
-                    lore.add(MenuUiSupport.labeledValue("Ctrl+Q", "Preview contents", MenuUiSupport.LABEL_SECONDARY_COLOR));
-                }
-                display.set(DataComponents.LORE, new ItemLore(lore));
-                container.setItem(i, display);
+                container.setItem(i, listingDisplay(listings.get(idx)));
             }
 
             if (listings.isEmpty()) {
@@ -458,10 +504,9 @@ public final class ShopUi {
                     long tax = Math.round(cost * EconomyConfig.get().taxRate);
                     long total = cost + tax;
 
-                    if (!eco.removeMoney(player.getUUID(), total)) {
+                    if (!eco.transaction().debit(player.getUUID(), total).credit(current.seller, cost).commit()) {
                         sp.sendSystemMessage(Component.literal("Not enough balance").withStyle(ChatFormatting.RED));
                     } else {
-                        eco.addMoney(current.seller, cost);
                         ShopListing sold = shop.removeListing(current.id);
                         if (sold != null) {
                             shop.notifySellerSale(sold, sp);
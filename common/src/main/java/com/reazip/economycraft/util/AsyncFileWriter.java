@@ -1,37 +1,235 @@
 package com.reazip.economycraft.util;
 
 import com.mojang.logging.LogUtils;
+import com.reazip.economycraft.EconomyConfig;
 import org.slf4j.Logger;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.concurrent.ExecutorService;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public final class AsyncFileWriter {
     private AsyncFileWriter() {}
 
     private static final Logger LOGGER = LogUtils.getLogger();
-    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread t = new Thread(r, "EconomyCraft-IO");
         t.setDaemon(true);
         return t;
     });
 
-    public static void writeAsync(Path file, String content) {
-        EXECUTOR.execute(() -> {
-            try {
-                Files.writeString(file, content, StandardCharsets.UTF_8);
-            } catch (Exception ex) {
-                LOGGER.error("[EconomyCraft] Failed to write {}", file, ex);
+    private static final Object LOCK = new Object();
+    private static final Map<Path, PendingWrite> PENDING = new LinkedHashMap<>();
+    private static final Set<Path> FAILED = new HashSet<>();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final AtomicLong WRITTEN = new AtomicLong();
+    private static ScheduledFuture<?> scheduled;
+
+    public static CompletableFuture<Boolean> writeAsync(Path file, String content) {
+        return writeAsync(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CompletableFuture<Boolean> writeAsync(Path file, byte[] content) {
+        PendingWrite write = new PendingWrite(content, true, false, List.of());
+        replace(file, write);
+        return write.done;
+    }
+
+    public static void deleteAsync(Path file, List<Path> after) {
+        replace(file, new PendingWrite(null, false, true, List.copyOf(after)));
+    }
+
+    public static void appendAsync(Path file, byte[] content) {
+        synchronized (LOCK) {
+            PENDING.computeIfAbsent(file, k -> new PendingWrite(null, false, false, List.of())).append(content);
+            scheduleDrain();
+        }
+    }
+
+    private static void replace(Path file, PendingWrite write) {
+        synchronized (LOCK) {
+            PendingWrite previous = PENDING.remove(file);
+            if (previous != null) {
+                write.waiting.add(previous.done);
+                write.waiting.addAll(previous.waiting);
+                if (write.requires.isEmpty()) {
+                    DROPPED.addAndGet(previous.writes);
+                } else {
+                    write.superseded = previous;
+                }
             }
-        });
+            PENDING.put(file, write);
+            scheduleDrain();
+        }
+    }
+
+    public static int queueDepth() {
+        synchronized (LOCK) {
+            return PENDING.size();
+        }
+    }
+
+    public static long droppedWrites() {
+        return DROPPED.get();
+    }
+
+    public static long completedWrites() {
+        return WRITTEN.get();
     }
 
     public static void flush() {
+        synchronized (LOCK) {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+        }
         try {
-            EXECUTOR.submit(() -> {}).get();
+            EXECUTOR.submit(AsyncFileWriter::drain).get();
         } catch (Exception ignored) {}
     }
+
+    private static void scheduleDrain() {
+        if (scheduled != null) return;
+        long delay = Math.max(0L, EconomyConfig.get().saveIntervalMs);
+        scheduled = EXECUTOR.schedule(AsyncFileWriter::drain, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static void drain() {
+        List<Map.Entry<Path, PendingWrite>> batch;
+        synchronized (LOCK) {
+            batch = new ArrayList<>(PENDING.entrySet());
+            PENDING.clear();
+            scheduled = null;
+        }
+        Set<Path> waiting = new HashSet<>();
+        for (Map.Entry<Path, PendingWrite> e : batch) {
+            waiting.add(e.getKey());
+        }
+        while (!batch.isEmpty()) {
+            List<Map.Entry<Path, PendingWrite>> blocked = new ArrayList<>();
+            for (Map.Entry<Path, PendingWrite> e : batch) {
+                if (waitsOn(e, waiting)) {
+                    blocked.add(e);
+                    continue;
+                }
+                write(e.getKey(), e.getValue());
+                waiting.remove(e.getKey());
+            }
+            if (blocked.size() == batch.size()) {
+                for (Map.Entry<Path, PendingWrite> e : blocked) {
+                    write(e.getKey(), e.getValue());
+                }
+                return;
+            }
+            batch = blocked;
+        }
+    }
+
+    private static boolean waitsOn(Map.Entry<Path, PendingWrite> entry, Set<Path> waiting) {
+        for (Path required : entry.getValue().requires) {
+            if (!required.equals(entry.getKey()) && waiting.contains(required)) return true;
+        }
+        return false;
+    }
+
+    private static void write(Path file, PendingWrite write) {
+        boolean applied = false;
+        try {
+            applied = write.writeTo(file);
+            FAILED.remove(file);
+            WRITTEN.incrementAndGet();
+        } catch (Exception ex) {
+            FAILED.add(file);
+            LOGGER.error("[EconomyCraft] Failed to write {}", file, ex);
+        }
+        write.done.complete(applied);
+        for (CompletableFuture<Boolean> waiter : write.waiting) {
+            waiter.complete(applied);
+        }
+    }
+
+    private static final class PendingWrite {
+        private final byte[] replacement;
+        private final boolean atomic;
+        private final boolean delete;
+        private final List<Path> requires;
+        private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+        private final List<CompletableFuture<Boolean>> waiting = new ArrayList<>();
+        private PendingWrite superseded;
+        private ByteArrayOutputStream appended;
+        private int writes;
+
+        PendingWrite(byte[] replacement, boolean atomic, boolean delete, List<Path> requires) {
+            this.replacement = replacement;
+            this.atomic = atomic;
+            this.delete = delete;
+            this.requires = requires;
+            this.writes = replacement != null || delete ? 1 : 0;
+        }
+
+        void append(byte[] content) {
+            if (appended == null) appended = new ByteArrayOutputStream();
+            appended.writeBytes(content);
+            writes++;
+        }
+
+        boolean writeTo(Path file) throws IOException {
+            if ((replacement != null || delete) && !Collections.disjoint(requires, FAILED)) {
+                LOGGER.error("[EconomyCraft] Keeping {} because {} could not be written", file, requires);
+                if (superseded != null) superseded.writeTo(file);
+                if (appended != null) writeDurably(file, appended.toByteArray(), true);
+                return false;
+            } else if (delete) {
+                Files.deleteIfExists(file);
+                if (appended != null) writeDurably(file, appended.toByteArray(), false);
+            } else if (replacement != null) {
+                byte[] content = appended == null ? replacement : concat(replacement, appended.toByteArray());
+                if (atomic) {
+                    AtomicFiles.commit(file, content);
+                } else {
+                    writeDurably(file, content, false);
+                }
+            } else if (appended != null) {
+                writeDurably(file, appended.toByteArray(), true);
+            }
+            return true;
+        }
+
+        private static void writeDurably(Path file, byte[] content, boolean append) throws IOException {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.wrap(content);
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+                ch.force(false);
+            }
+        }
+
+        private static byte[] concat(byte[] a, byte[] b) {
+            byte[] out = new byte[a.length + b.length];
+            System.arraycopy(a, 0, out, 0, a.length);
+            System.arraycopy(b, 0, out, a.length, b.length);
+            return out;
+        }
+    }
 }
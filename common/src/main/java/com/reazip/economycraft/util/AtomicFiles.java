@@ -0,0 +1,109 @@
+package com.reazip.economycraft.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.mojang.logging.LogUtils;
+import com.reazip.economycraft.EconomyConfig;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public final class AtomicFiles {
+    private AtomicFiles() {}
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    public static void commit(Path file, byte[] content) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(content);
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(true);
+        }
+
+        rotate(file);
+
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(file.getParent());
+    }
+
+    @Nullable
+    public static JsonElement readJson(Path file) {
+        int generations = generations();
+        for (int gen = 0; gen <= generations; gen++) {
+            Path candidate = generation(file, gen);
+            if (Files.notExists(candidate)) continue;
+            try {
+                String json = Files.readString(candidate, StandardCharsets.UTF_8);
+                JsonElement parsed = JsonParser.parseString(json);
+                if (parsed == null || parsed.isJsonNull()) throw new IOException("empty document");
+                if (gen > 0) {
+                    LOGGER.warn("[EconomyCraft] {} was unreadable; loaded the backup {} instead.", file, candidate);
+                }
+                return parsed;
+            } catch (Exception ex) {
+                LOGGER.error("[EconomyCraft] Failed to read {}", candidate, ex);
+            }
+        }
+        return null;
+    }
+
+    public static boolean exists(Path file) {
+        int generations = generations();
+        for (int gen = 0; gen <= generations; gen++) {
+            if (Files.exists(generation(file, gen))) return true;
+        }
+        return false;
+    }
+
+    private static void rotate(Path file) throws IOException {
+        int generations = generations();
+        if (generations <= 0 || Files.notExists(file)) return;
+
+        Files.deleteIfExists(generation(file, generations));
+        for (int gen = generations - 1; gen >= 1; gen--) {
+            Path from = generation(file, gen);
+            if (Files.exists(from)) {
+                Files.move(from, generation(file, gen + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        Path newest = generation(file, 1);
+        try {
+            Files.createLink(newest, file);
+        } catch (IOException | UnsupportedOperationException ex) {
+            Files.copy(file, newest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path generation(Path file, int gen) {
+        return gen == 0 ? file : file.resolveSibling(file.getFileName() + "." + gen);
+    }
+
+    private static int generations() {
+        return Math.max(0, EconomyConfig.get().backupGenerations);
+    }
+
+    private static void syncDirectory(@Nullable Path dir) {
+        if (dir == null) return;
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,154 @@
+package com.reazip.economycraft.util;
+
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public final class BalanceJournal {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    public static final byte OP_BALANCE = 1;
+    public static final byte OP_REMOVE = 2;
+    public static final byte OP_DAILY = 3;
+    public static final byte OP_DAILY_SELL = 4;
+
+    private static final int RECORD_BYTES = 1 + 8 + 8 + 8 + 8;
+
+    private final Path file;
+    private final String prefix;
+    private final String suffix;
+    private int segment = -1;
+    private int oldest;
+    private int pending;
+    private boolean empty = true;
+
+    public BalanceJournal(Path file) {
+        this.file = file;
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        this.prefix = (dot < 0 ? name : name.substring(0, dot)) + ".";
+        this.suffix = dot < 0 ? "" : name.substring(dot);
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public synchronized void append(byte op, UUID id, long a, long b) {
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_BYTES);
+        buf.put(op);
+        buf.putLong(id.getMostSignificantBits());
+        buf.putLong(id.getLeastSignificantBits());
+        buf.putLong(a);
+        buf.putLong(b);
+        AsyncFileWriter.appendAsync(segmentFile(current()), buf.array());
+        pending++;
+        empty = false;
+    }
+
+    public synchronized int pending() {
+        return pending;
+    }
+
+    public synchronized boolean isEmpty() {
+        return empty;
+    }
+
+    public synchronized int rotate() {
+        segment = current() + 1;
+        pending = 0;
+        empty = true;
+        return segment;
+    }
+
+    public synchronized void retire(int before, List<Path> after) {
+        for (int n = oldest; n < before; n++) {
+            AsyncFileWriter.deleteAsync(segmentFile(n), after);
+        }
+        oldest = Math.max(oldest, before);
+    }
+
+    public synchronized int replay(Visitor visitor) {
+        int applied = 0;
+        empty = true;
+        for (int n : scan()) {
+            Path path = segmentFile(n);
+            byte[] bytes;
+            try {
+                bytes = Files.readAllBytes(path);
+            } catch (IOException ex) {
+                LOGGER.error("[EconomyCraft] Failed to read balance journal {}", path, ex);
+                continue;
+            }
+
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.remaining() >= RECORD_BYTES) {
+                byte op = buf.get();
+                UUID id = new UUID(buf.getLong(), buf.getLong());
+                long a = buf.getLong();
+                long b = buf.getLong();
+                if (op < OP_BALANCE || op > OP_DAILY_SELL) {
+                    LOGGER.error("[EconomyCraft] Stopping journal replay at an unknown record type {} in {}", op, path);
+                    break;
+                }
+                visitor.apply(op, id, a, b);
+                applied++;
+            }
+            if (buf.remaining() > 0 && buf.remaining() < RECORD_BYTES) {
+                LOGGER.warn("[EconomyCraft] Ignoring a torn {}-byte record at the end of {}", buf.remaining(), path);
+            }
+            if (bytes.length > 0) empty = false;
+        }
+        pending = applied;
+        return applied;
+    }
+
+    private int current() {
+        if (segment < 0) scan();
+        return segment;
+    }
+
+    private int[] scan() {
+        IntArrayList found = new IntArrayList();
+        if (Files.exists(file)) found.add(0);
+        try (Stream<Path> siblings = Files.list(file.toAbsolutePath().getParent())) {
+            siblings.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.length() <= prefix.length() + suffix.length()
+                        || !name.startsWith(prefix) || !name.endsWith(suffix)) return;
+                String number = name.substring(prefix.length(), name.length() - suffix.length());
+                if (!number.chars().allMatch(Character::isDigit)) return;
+                try {
+                    found.add(Integer.parseInt(number));
+                } catch (NumberFormatException ignored) {}
+            });
+        } catch (NoSuchFileException ignored) {
+        } catch (IOException ex) {
+            LOGGER.error("[EconomyCraft] Failed to list balance journal segments next to {}", file, ex);
+        }
+        int[] segments = found.toIntArray();
+        Arrays.sort(segments);
+        oldest = segments.length == 0 ? 0 : segments[0];
+        segment = segments.length == 0 ? 0 : segments[segments.length - 1];
+        return segments;
+    }
+
+    private Path segmentFile(int n) {
+        return n == 0 ? file : file.resolveSibling(prefix + n + suffix);
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void apply(byte op, UUID id, long a, long b);
+    }
+}
@@ -0,0 +1,117 @@
+package com.reazip.economycraft.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mojang.logging.LogUtils;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class BundledDefaults {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final String MARKER_FILE = "bundled_defaults.json";
+    private static final Map<String, BundledDefaults> CACHE = new ConcurrentHashMap<>();
+
+    private final String json;
+    private final JsonObject root;
+    private final Set<String> keys;
+    private final String hash;
+
+    private BundledDefaults(String json, JsonObject root, String hash) {
+        this.json = json;
+        this.root = root;
+        this.keys = Collections.unmodifiableSet(new LinkedHashSet<>(root.keySet()));
+        this.hash = hash;
+    }
+
+    @Nullable
+    public static BundledDefaults of(String resourcePath) throws IOException {
+        BundledDefaults cached = CACHE.get(resourcePath);
+        if (cached != null) return cached;
+
+        try (InputStream in = BundledDefaults.class.getResourceAsStream(resourcePath)) {
+            if (in == null) return null;
+            byte[] bytes = in.readAllBytes();
+            String json = new String(bytes, StandardCharsets.UTF_8);
+            JsonElement parsed = JsonParser.parseString(json);
+            if (parsed == null || !parsed.isJsonObject()) return null;
+            BundledDefaults loaded = new BundledDefaults(json, parsed.getAsJsonObject(), sha256(bytes));
+            BundledDefaults raced = CACHE.putIfAbsent(resourcePath, loaded);
+            return raced != null ? raced : loaded;
+        }
+    }
+
+    public String json() {
+        return json;
+    }
+
+    public Set<String> keys() {
+        return keys;
+    }
+
+    public boolean has(String key) {
+        return keys.contains(key);
+    }
+
+    public JsonElement copyOf(String key) {
+        JsonElement value = root.get(key);
+        return value == null ? null : value.deepCopy();
+    }
+
+    public JsonObject copy() {
+        return root.deepCopy();
+    }
+
+    public boolean isMergedInto(Path dataDir, String fileName) {
+        JsonObject marker = readMarker(dataDir.resolve(MARKER_FILE));
+        JsonElement stored = marker.get(fileName);
+        return stored != null && stored.isJsonPrimitive() && hash.equals(stored.getAsString());
+    }
+
+    public void markMergedInto(Path dataDir, String fileName) {
+        Path markerFile = dataDir.resolve(MARKER_FILE);
+        JsonObject marker = readMarker(markerFile);
+        marker.addProperty(fileName, hash);
+        try {
+            Files.writeString(markerFile, GSON.toJson(marker), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            LOGGER.error("[EconomyCraft] Failed to write {}", markerFile, ex);
+        }
+    }
+
+    private static JsonObject readMarker(Path markerFile) {
+        if (Files.notExists(markerFile)) return new JsonObject();
+        try {
+            JsonElement parsed = JsonParser.parseString(Files.readString(markerFile, StandardCharsets.UTF_8));
+            return parsed != null && parsed.isJsonObject() ? parsed.getAsJsonObject() : new JsonObject();
+        } catch (Exception ex) {
+            LOGGER.warn("[EconomyCraft] Ignoring unreadable {}: {}", markerFile, ex.toString());
+            return new JsonObject();
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.reazip.economycraft.util;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.ints.IntSets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ChangeBus {
+    private final List<Listener> listeners = new ArrayList<>();
+    private IntOpenHashSet dirty = new IntOpenHashSet();
+
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void markDirty(int id) {
+        if (!listeners.isEmpty()) dirty.add(id);
+    }
+
+    public void flush() {
+        if (dirty.isEmpty()) return;
+        IntSet changed = IntSets.unmodifiable(dirty);
+        dirty = new IntOpenHashSet();
+        for (Listener listener : listeners.toArray(new Listener[0])) {
+            listener.onChanged(changed);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        void onChanged(IntSet ids);
+    }
+}
@@ -10,6 +10,7 @@ import net.minecraft.world.item.ItemStack;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -41,7 +42,23 @@ public final class DeliveryLedger {
         return list != null && !list.isEmpty();
     }
 
+    public Map<UUID, List<ItemStack>> snapshot() {
+        Map<UUID, List<ItemStack>> out = new HashMap<>(deliveries.size());
+        for (Map.Entry<UUID, List<ItemStack>> e : deliveries.entrySet()) {
+            List<ItemStack> copies = new ArrayList<>(e.getValue().size());
+            for (ItemStack s : e.getValue()) {
+                copies.add(s.copy());
+            }
+            out.put(e.getKey(), copies);
+        }
+        return out;
+    }
+
     public JsonObject save(HolderLookup.Provider provider) {
+        return encode(snapshot(), provider);
+    }
+
+    public static JsonObject encode(Map<UUID, List<ItemStack>> deliveries, HolderLookup.Provider provider) {
         JsonObject dObj = new JsonObject();
         for (Map.Entry<UUID, List<ItemStack>> e : deliveries.entrySet()) {
             JsonArray arr = new JsonArray();
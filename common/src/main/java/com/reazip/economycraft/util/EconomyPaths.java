@@ -26,6 +26,8 @@ public final class EconomyPaths {
             "balances.json",
             "daily.json",
             "daily_sells.json",
+            "balances.journal",
+            "balances.dat",
             "deliveries.json",
             "shop.json",
             "orders.json"
@@ -0,0 +1,69 @@
+package com.reazip.economycraft.util;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntLists;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import java.util.concurrent.TimeUnit;
+
+public final class ExpiryWheel {
+    private static final long SLOT_MS = 1000L;
+    private static final int SLOTS = 4096;
+
+    private final IntOpenHashSet[] slots = new IntOpenHashSet[SLOTS];
+    private final Int2LongOpenHashMap deadlines = new Int2LongOpenHashMap();
+    private final Int2IntOpenHashMap slotOf = new Int2IntOpenHashMap();
+    private long cursor;
+
+    public ExpiryWheel(long now) {
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new IntOpenHashSet();
+        }
+        this.cursor = now / SLOT_MS;
+    }
+
+    public static long deadline(long from, int days) {
+        return days <= 0 ? 0 : from + TimeUnit.DAYS.toMillis(days);
+    }
+
+    public void schedule(int id, long deadline) {
+        cancel(id);
+        if (deadline <= 0) return;
+        int slot = (int) Math.floorMod(Math.max(deadline / SLOT_MS, cursor), (long) SLOTS);
+        deadlines.put(id, deadline);
+        slotOf.put(id, slot);
+        slots[slot].add(id);
+    }
+
+    public void cancel(int id) {
+        if (!slotOf.containsKey(id)) return;
+        slots[slotOf.remove(id)].remove(id);
+        deadlines.remove(id);
+    }
+
+    public IntList advance(long now) {
+        long target = now / SLOT_MS;
+        if (target <= cursor) return IntLists.EMPTY_LIST;
+
+        IntList expired = null;
+        for (long t = Math.max(cursor, target - SLOTS); t < target; t++) {
+            IntOpenHashSet slot = slots[(int) Math.floorMod(t, (long) SLOTS)];
+            if (slot.isEmpty()) continue;
+            for (IntIterator it = slot.iterator(); it.hasNext(); ) {
+                int id = it.nextInt();
+                if (deadlines.get(id) / SLOT_MS > t) continue;
+                it.remove();
+                deadlines.remove(id);
+                slotOf.remove(id);
+                if (expired == null) expired = new IntArrayList();
+                expired.add(id);
+            }
+        }
+        cursor = target;
+        return expired == null ? IntLists.EMPTY_LIST : expired;
+    }
+}
@@ -217,7 +217,7 @@ public final class MenuUiSupport {
                 ? ProfileComponentCompat.tryResolvedOrUnresolved(player.getGameProfile())
                 : ProfileComponentCompat.tryUnresolved(name != null && !name.isBlank() ? name : playerId.toString());
         profile.ifPresent(resolvable -> head.set(DataComponents.PROFILE, resolvable));
-        long balance = eco.getBalance(playerId, true);
+        long balance = eco.getBalance(playerId);
         String displayName = name != null ? name : playerId.toString();
         head.set(DataComponents.CUSTOM_NAME, Component.literal(displayName).withStyle(s -> s.withItalic(false).withBold(true).withColor(BALANCE_NAME_COLOR)));
         head.set(DataComponents.LORE, new ItemLore(List.of(balanceLore(balance))));
@@ -308,6 +308,31 @@ public final class MenuUiSupport {
         return false;
     }
 
+    public static List<String> searchText(ItemStack stack) {
+        List<String> out = new ArrayList<>();
+        addSearchText(stack, out);
+        ItemContainerContents contents = stack.get(DataComponents.CONTAINER);
+        if (contents != null) {
+            for (ItemStack inner : contents.nonEmptyItems()) {
+                addSearchText(inner, out);
+            }
+        }
+        return out;
+    }
+
+    private static void addSearchText(ItemStack stack, List<String> out) {
+        out.add(stack.getHoverName().getString());
+        addEnchantmentNames(stack.get(DataComponents.ENCHANTMENTS), out);
+        addEnchantmentNames(stack.get(DataComponents.STORED_ENCHANTMENTS), out);
+    }
+
+    private static void addEnchantmentNames(@Nullable ItemEnchantments enchantments, List<String> out) {
+        if (enchantments == null) return;
+        for (Object2IntMap.Entry<Holder<Enchantment>> e : enchantments.entrySet()) {
+            out.add(e.getKey().value().description().getString());
+        }
+    }
+
     private static boolean stackMatches(ItemStack stack, String lowerQuery) {
         if (stack.getHoverName().getString().toLowerCase(Locale.ROOT).contains(lowerQuery)) return true;
         return enchantmentsMatch(stack.get(DataComponents.ENCHANTMENTS), lowerQuery)
@@ -0,0 +1,103 @@
+package com.reazip.economycraft.util;
+
+import com.google.gson.Gson;
+import com.mojang.logging.LogUtils;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+public final class NameDirectory {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Gson GSON = new Gson();
+    private static final long REFRESH_INTERVAL_MS = 5_000L;
+
+    private final Path userCache;
+    private final Map<UUID, String> names = new ConcurrentHashMap<>();
+    private final Map<String, UUID> ids = new ConcurrentHashMap<>();
+    private long cacheModified = Long.MIN_VALUE;
+    private long nextCheck;
+    private volatile @Nullable BiConsumer<UUID, String> listener;
+
+    public NameDirectory(Path userCache) {
+        this.userCache = userCache;
+    }
+
+    public void listen(BiConsumer<UUID, String> listener) {
+        this.listener = listener;
+    }
+
+    public @Nullable String name(UUID id) {
+        return names.get(id);
+    }
+
+    public @Nullable UUID id(String name) {
+        if (name == null || name.isBlank()) return null;
+        return ids.get(fold(name));
+    }
+
+    public synchronized boolean record(UUID id, String name) {
+        if (id == null || name == null || name.isBlank()) return false;
+        String previous = names.put(id, name);
+        if (name.equals(previous)) return false;
+        if (previous != null) ids.remove(fold(previous), id);
+        ids.put(fold(name), id);
+        BiConsumer<UUID, String> l = listener;
+        if (l != null) l.accept(id, name);
+        return true;
+    }
+
+    public void poll() {
+        long now = System.currentTimeMillis();
+        if (now < nextCheck) return;
+        nextCheck = now + REFRESH_INTERVAL_MS;
+        PersistenceScheduler.afterSaves(this::refresh);
+    }
+
+    public synchronized boolean refresh() {
+        long modified;
+        try {
+            modified = Files.getLastModifiedTime(userCache).toMillis();
+        } catch (NoSuchFileException ex) {
+            return false;
+        } catch (IOException ex) {
+            LOGGER.error("[EconomyCraft] Failed to check {}", userCache, ex);
+            return false;
+        }
+        if (modified == cacheModified) return false;
+
+        try {
+            UserCacheEntry[] entries = GSON.fromJson(Files.readString(userCache), UserCacheEntry[].class);
+            cacheModified = modified;
+            if (entries == null) return true;
+            for (int i = entries.length - 1; i >= 0; i--) {
+                UserCacheEntry e = entries[i];
+                if (e == null || e.uuid == null || e.uuid.isBlank() || e.name == null || e.name.isBlank()) continue;
+                try {
+                    record(UUID.fromString(e.uuid), e.name);
+                } catch (IllegalArgumentException ignored) {}
+            }
+            return true;
+        } catch (Exception ex) {
+            LOGGER.error("[EconomyCraft] Failed to read {}", userCache, ex);
+            return false;
+        }
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class UserCacheEntry {
+        String name;
+        String uuid;
+    }
+}
@@ -0,0 +1,120 @@
+package com.reazip.economycraft.util;
+
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+public final class PersistenceScheduler {
+    private PersistenceScheduler() {}
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int CAPTURE_INTERVAL_TICKS = 20;
+    private static final ExecutorService ENCODER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "EconomyCraft-Save");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Set<Persistable> DIRTY = new LinkedHashSet<>();
+    private static int ticksSinceCapture;
+
+    public static void markDirty(Persistable source) {
+        synchronized (DIRTY) {
+            DIRTY.add(source);
+        }
+    }
+
+    public static void tick() {
+        if (++ticksSinceCapture < CAPTURE_INTERVAL_TICKS) return;
+        ticksSinceCapture = 0;
+        for (Persistable source : takeDirty()) {
+            Encoder encoder = capture(source);
+            if (encoder != null) ENCODER.execute(() -> encodeAndWrite(source.file(), encoder));
+        }
+    }
+
+    public static void saveNow(Persistable source) {
+        synchronized (DIRTY) {
+            DIRTY.remove(source);
+        }
+        Encoder encoder = capture(source);
+        if (encoder != null) ENCODER.execute(() -> encodeAndWrite(source.file(), encoder));
+    }
+
+    public static void encode(Path file, Runnable task) {
+        ENCODER.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                LOGGER.error("[EconomyCraft] Failed to encode {}", file, ex);
+            }
+        });
+    }
+
+    public static <T> CompletableFuture<T> afterSaves(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, ENCODER);
+    }
+
+    public static void flush() {
+        for (Persistable source : takeDirty()) {
+            Encoder encoder = capture(source);
+            if (encoder != null) ENCODER.execute(() -> encodeAndWrite(source.file(), encoder));
+        }
+        try {
+            ENCODER.submit(() -> {}).get();
+        } catch (Exception ignored) {}
+        AsyncFileWriter.flush();
+    }
+
+    private static List<Persistable> takeDirty() {
+        synchronized (DIRTY) {
+            if (DIRTY.isEmpty()) return List.of();
+            List<Persistable> out = new ArrayList<>(DIRTY);
+            DIRTY.clear();
+            return out;
+        }
+    }
+
+    private static Encoder capture(Persistable source) {
+        try {
+            return source.snapshot();
+        } catch (Exception ex) {
+            LOGGER.error("[EconomyCraft] Failed to capture {} for saving", source.file(), ex);
+            return null;
+        }
+    }
+
+    private static void encodeAndWrite(Path file, Encoder encoder) {
+        String content;
+        try {
+            content = encoder.encode();
+        } catch (Exception ex) {
+            LOGGER.error("[EconomyCraft] Failed to encode {}", file, ex);
+            encoder.written(false);
+            return;
+        }
+        AsyncFileWriter.writeAsync(file, content).thenAccept(encoder::written);
+    }
+
+    public interface Persistable {
+        Path file();
+
+        Encoder snapshot();
+    }
+
+    @FunctionalInterface
+    public interface Encoder {
+        String encode();
+
+        default void written(boolean saved) {}
+    }
+}
@@ -97,9 +97,7 @@ public final class PlayerPickerUi {
             for (ServerPlayer online : server.getPlayerList().getPlayers()) {
                 known.put(online.getUUID(), IdentityCompat.of(online).name());
             }
-            for (UUID id : eco.getBalances().keySet()) {
-                known.computeIfAbsent(id, key -> eco.getBestName(key));
-            }
+            eco.forEachBalance((id, balance) -> known.computeIfAbsent(id, key -> eco.getBestName(key)));
 
             String needle = query == null || query.isBlank() ? null : query.trim().toLowerCase(Locale.ROOT);
             List<Target> out = new ArrayList<>();
@@ -107,7 +105,7 @@ public final class PlayerPickerUi {
                 if (!includeSelf && entry.getKey().equals(viewer.getUUID())) continue;
                 String name = entry.getValue() == null ? entry.getKey().toString() : entry.getValue();
                 if (needle != null && !name.toLowerCase(Locale.ROOT).contains(needle)) continue;
-                out.add(new Target(entry.getKey(), name, eco.getBalance(entry.getKey(), true)));
+                out.add(new Target(entry.getKey(), name, eco.getBalance(entry.getKey())));
             }
             out.sort((a, b) -> String.CASE_INSENSITIVE_ORDER.compare(a.name(), b.name()));
             return out;
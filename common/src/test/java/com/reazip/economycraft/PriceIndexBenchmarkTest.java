@@ -0,0 +1,77 @@
+package com.reazip.economycraft;
+
+import com.reazip.economycraft.PriceRegistry.PriceEntry;
+import com.reazip.economycraft.util.IdentifierCompat;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PriceIndexBenchmarkTest {
+    private static final int VARIANTS = 1000;
+    private static final int ROUNDS = 20;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    @Test
+    void customVariantsCostOneProbeAndOneComparison() {
+        IdentifierCompat.Id sword = IdentifierCompat.withDefaultNamespace("diamond_sword");
+        List<PriceEntry> entries = new ArrayList<>(VARIANTS);
+        List<ItemStack> probes = new ArrayList<>(VARIANTS);
+        for (int i = 0; i < VARIANTS; i++) {
+            ItemStack kit = new ItemStack(Items.DIAMOND_SWORD);
+            kit.set(DataComponents.CUSTOM_NAME, Component.literal("Kit " + i));
+            entries.add(new PriceEntry("minecraft:diamond_sword#kit_" + i, sword, "kits", 1, 100L + i, 10L + i, kit));
+            probes.add(kit.copy());
+        }
+        PriceIndex index = new PriceIndex(Map.of(sword, entries), null);
+
+        for (int i = 0; i < VARIANTS; i++) {
+            assertSame(entries.get(i), index.resolve(probes.get(i)));
+            assertSame(entries.get(i), linearScan(entries, probes.get(i)));
+            assertEquals(1, index.comparisons(probes.get(i)), "comparisons for variant " + i);
+        }
+
+        long indexed = time(() -> {
+            for (ItemStack probe : probes) index.resolve(probe);
+        });
+        long scanned = time(() -> {
+            for (ItemStack probe : probes) linearScan(entries, probe);
+        });
+        System.out.printf("%d custom variants: index %.1f us/lookup, linear scan %.1f us/lookup%n",
+                VARIANTS, indexed / 1000.0 / VARIANTS, scanned / 1000.0 / VARIANTS);
+    }
+
+    private static PriceEntry linearScan(List<PriceEntry> entries, ItemStack stack) {
+        for (PriceEntry p : entries) {
+            if (ItemStack.isSameItemSameComponents(stack, p.customItem())) return p;
+        }
+        return null;
+    }
+
+    private static long time(Runnable pass) {
+        pass.run();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            pass.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
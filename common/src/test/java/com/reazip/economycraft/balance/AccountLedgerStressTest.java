@@ -0,0 +1,77 @@
+package com.reazip.economycraft.balance;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountLedgerStressTest {
+    private static final int THREADS = 64;
+    private static final int ACCOUNTS = 32;
+    private static final int OPERATIONS = 20_000;
+    private static final long STARTING_BALANCE = 10_000L;
+    private static final long MAX = 999_999_999L;
+
+    @Test
+    void moneyIsConservedUnderContention() throws Exception {
+        AccountLedger ledger = new AccountLedger();
+        UUID[] accounts = new UUID[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = UUID.randomUUID();
+            ledger.set(accounts[i], STARTING_BALANCE);
+        }
+        AtomicLong negative = new AtomicLong();
+        ledger.listen((id, previous, balance) -> {
+            if (balance != AccountLedger.NONE && balance < 0) negative.incrementAndGet();
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    int a = random.nextInt(ACCOUNTS);
+                    int b = (a + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    UUID from = accounts[a];
+                    UUID to = accounts[b];
+                    long amount = random.nextLong(1, 2 * STARTING_BALANCE);
+                    if (random.nextBoolean()) {
+                        ledger.apply(new UUID[]{from, to}, new long[]{-amount, amount}, 0, MAX);
+                    } else if (ledger.withdraw(from, amount)) {
+                        ledger.add(to, amount, 0, MAX);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        long total = 0;
+        for (UUID id : accounts) {
+            long balance = ledger.balance(id);
+            assertTrue(balance >= 0, id + " went negative: " + balance);
+            total += balance;
+        }
+        assertEquals(ACCOUNTS * STARTING_BALANCE, total, "money was created or destroyed");
+        assertEquals(0L, negative.get(), "balances observed below zero");
+    }
+}
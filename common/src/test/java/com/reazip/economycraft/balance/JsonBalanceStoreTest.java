@@ -0,0 +1,65 @@
+package com.reazip.economycraft.balance;
+
+import com.reazip.economycraft.util.PersistenceScheduler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonBalanceStoreTest {
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void saveThenLoadRoundTripsAccounts() {
+        UUID rich = UUID.randomUUID();
+        UUID broke = UUID.randomUUID();
+        AccountLedger ledger = new AccountLedger();
+        ledger.load(rich, 1500L, 20_000L, 20_001L, 300L);
+        ledger.load(broke, 0L, BalanceStore.NONE, BalanceStore.NONE, 0L);
+
+        new JsonBalanceStore(dataDir).save(ledger);
+        PersistenceScheduler.flush();
+
+        Map<UUID, long[]> loaded = new HashMap<>();
+        new JsonBalanceStore(dataDir).load((id, balance, daily, sellDay, sellAmount) ->
+                loaded.put(id, new long[]{balance, daily, sellDay, sellAmount}));
+
+        assertEquals(2, loaded.size());
+        assertArrayEquals(new long[]{1500L, 20_000L, 20_001L, 300L}, loaded.get(rich));
+        assertArrayEquals(new long[]{0L, BalanceStore.NONE, BalanceStore.NONE, 0L}, loaded.get(broke));
+    }
+
+    @Test
+    void changesAfterACheckpointReplayOnTopOfTheSnapshot() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        JsonBalanceStore store = new JsonBalanceStore(dataDir);
+        AccountLedger ledger = new AccountLedger();
+        ledger.attach(store);
+        ledger.set(first, 100L);
+        store.save(ledger);
+        ledger.set(first, 250L);
+        ledger.set(second, 40L);
+        store.save(ledger);
+        ledger.set(second, 75L);
+        PersistenceScheduler.flush();
+
+        Map<UUID, Long> loaded = new HashMap<>();
+        new JsonBalanceStore(dataDir).load((id, balance, daily, sellDay, sellAmount) -> loaded.put(id, balance));
+
+        assertEquals(Map.of(first, 250L, second, 75L), loaded);
+        try (Stream<Path> files = Files.list(dataDir)) {
+            assertEquals(1L, files.filter(f -> f.getFileName().toString().endsWith(".journal")).count());
+        }
+    }
+}
@@ -14,14 +14,14 @@ final class EconomyCraftFabricPlaceholders {
         Placeholders.register(Identifier.fromNamespaceAndPath(EconomyCraft.MOD_ID, "balance"), (ctx, arg) -> {
             if (!ctx.hasPlayer()) return PlaceholderResult.invalid("No player!");
             EconomyManager eco = EconomyCraft.getManager(ctx.server());
-            long balance = eco.getBalance(ctx.player().getUUID(), true);
+            long balance = eco.getBalance(ctx.player().getUUID());
             return PlaceholderResult.value(String.valueOf(balance));
         });
 
         Placeholders.register(Identifier.fromNamespaceAndPath(EconomyCraft.MOD_ID, "balance_formatted"), (ctx, arg) -> {
             if (!ctx.hasPlayer()) return PlaceholderResult.invalid("No player!");
             EconomyManager eco = EconomyCraft.getManager(ctx.server());
-            long balance = eco.getBalance(ctx.player().getUUID(), true);
+            long balance = eco.getBalance(ctx.player().getUUID());
             return PlaceholderResult.value(EconomyCraft.formatMoney(balance));
         });
 
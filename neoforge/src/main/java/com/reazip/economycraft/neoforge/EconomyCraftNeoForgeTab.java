@@ -46,11 +46,11 @@ final class EconomyCraftNeoForgeTab {
         Method registerServerPattern = managerClass.getMethod("registerServerPlaceholder", Pattern.class, int.class, Function.class);
 
         Function<Object, String> balance = tabPlayer -> String.valueOf(
-                EconomyCraft.getManager(server).getBalance(uuidOf(getUniqueId, tabPlayer), true));
+                EconomyCraft.getManager(server).getBalance(uuidOf(getUniqueId, tabPlayer)));
         registerPlayer.invoke(manager, "%economycraft:balance%", REFRESH_MS, balance);
 
         Function<Object, String> balanceFormatted = tabPlayer -> EconomyCraft.formatMoney(
-                EconomyCraft.getManager(server).getBalance(uuidOf(getUniqueId, tabPlayer), true));
+                EconomyCraft.getManager(server).getBalance(uuidOf(getUniqueId, tabPlayer)));
         registerPlayer.invoke(manager, "%economycraft:balance_formatted%", REFRESH_MS, balanceFormatted);
 
         Function<Object, String> dailySellRemaining = tabPlayer -> {